@@ -0,0 +1,215 @@
+package com.example.projet;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothManager;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import com.example.projet.ble.BleMetrics;
+import com.example.projet.ble.DeviceSession;
+import com.example.projet.ble.DeviceSnapshot;
+import com.example.projet.ble.GattAttributeCache;
+import com.example.projet.ble.GattRecording;
+import com.example.projet.ble.SessionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the BLE worker thread and every headset session, so the links survive activity
+ * recreation (rotation, theme change) and backgrounding. The activity binds to it and only
+ * observes; once a connection is requested the service is also started in the foreground,
+ * until the user disconnects everything from the notification or quits the app.
+ *
+ * <p>Binder methods must be called on the main thread, like the {@link SessionManager} behind them.
+ */
+public class BleConnectionService extends Service {
+
+    private static final String CHANNEL_ID = "ble_connection";
+    private static final int NOTIFICATION_ID = 1;
+    private static final String ACTION_DISCONNECT_ALL = "com.example.projet.action.DISCONNECT_ALL";
+
+    public final class LocalBinder extends Binder {
+        BleConnectionService getService() {
+            return BleConnectionService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final BleMetrics metrics = new BleMetrics();
+    private HandlerThread bleThread;
+    private SessionManager sessionManager;
+    private boolean foreground;
+
+    /** Session shown by the UI; kept here so a recreated activity picks it up again. */
+    @Nullable private String activeAddress;
+    /** The bound activity, called on the BLE handler thread. */
+    @Nullable private volatile DeviceSession.Listener observer;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        bleThread = new HandlerThread("ble-worker");
+        bleThread.start();
+        BluetoothManager bluetoothManager = getSystemService(BluetoothManager.class);
+        sessionManager = new SessionManager(this, bluetoothManager.getAdapter(), new Handler(bleThread.getLooper()),
+                new GattAttributeCache(new File(getFilesDir(), "gatt_cache")), metrics, sessionListener);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_DISCONNECT_ALL.equals(intent.getAction())) {
+            disconnectAll();
+            return START_NOT_STICKY;
+        }
+        startInForeground();
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mainHandler.removeCallbacksAndMessages(null);
+        sessionManager.closeAll();
+        bleThread.quitSafely();
+    }
+
+    // --- API for the bound activity ---
+
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    /** Latency histograms of every session since the service started. */
+    public BleMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Snapshots the GATT recorder of every session; {@link #writeRecordings} then saves them
+     * off the main thread.
+     */
+    public Map<String, GattRecording> snapshotRecordings() {
+        Map<String, GattRecording> recordings = new LinkedHashMap<>();
+        for (DeviceSession session : sessionManager.getSessions()) {
+            recordings.put(session.getAddress(), session.snapshotRecording());
+        }
+        return recordings;
+    }
+
+    /** @return the files written, one per device, under {@code files/recordings}. */
+    public List<File> writeRecordings(Map<String, GattRecording> recordings) throws IOException {
+        File directory = new File(getFilesDir(), "recordings");
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Cannot create " + directory);
+        long now = System.currentTimeMillis();
+        List<File> files = new ArrayList<>();
+        for (Map.Entry<String, GattRecording> recording : recordings.entrySet()) {
+            File file = new File(directory, recording.getKey().replace(":", "") + "-" + now + ".grec");
+            recording.getValue().writeTo(file.toPath());
+            files.add(file);
+        }
+        return files;
+    }
+
+    public void setObserver(@Nullable DeviceSession.Listener observer) {
+        this.observer = observer;
+    }
+
+    @Nullable
+    public DeviceSession getActiveSession() {
+        return activeAddress != null ? sessionManager.get(activeAddress) : null;
+    }
+
+    public void setActiveSession(@Nullable DeviceSession session) {
+        activeAddress = session != null ? session.getAddress() : null;
+    }
+
+    /** Connects to the device and keeps the service in the foreground until {@link #disconnectAll()}. */
+    public DeviceSession connect(BluetoothDevice device) {
+        startForegroundService(new Intent(this, BleConnectionService.class));
+        return sessionManager.connect(device);
+    }
+
+    public void disconnectAll() {
+        sessionManager.closeAll();
+        activeAddress = null;
+        if (foreground) {
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            foreground = false;
+        }
+        stopSelf();
+    }
+
+    // --- Foreground notification ---
+
+    private void startInForeground() {
+        NotificationManager notificationManager = getSystemService(NotificationManager.class);
+        notificationManager.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                "Connexion aux casques", NotificationManager.IMPORTANCE_LOW));
+        startForeground(NOTIFICATION_ID, buildNotification(), ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE);
+        foreground = true;
+    }
+
+    private Notification buildNotification() {
+        int connected = 0;
+        for (DeviceSession session : sessionManager.getSessions()) {
+            if (session.isConnected()) connected++;
+        }
+        PendingIntent openApp = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent disconnect = PendingIntent.getService(this, 0,
+                new Intent(this, BleConnectionService.class).setAction(ACTION_DISCONNECT_ALL), PendingIntent.FLAG_IMMUTABLE);
+        return new Notification.Builder(this, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_data_bluetooth)
+                .setContentTitle("Casques connectés : " + connected)
+                .setContentIntent(openApp)
+                .addAction(new Notification.Action.Builder(null, "Déconnecter", disconnect).build())
+                .setOngoing(true)
+                .build();
+    }
+
+    private void refreshNotification() {
+        if (foreground) getSystemService(NotificationManager.class).notify(NOTIFICATION_ID, buildNotification());
+    }
+
+    // --- Session events: forwarded to the bound activity, if any ---
+
+    private final DeviceSession.Listener sessionListener = new DeviceSession.Listener() {
+        @Override
+        public void onStateChanged(DeviceSession session, DeviceSnapshot previous, DeviceSnapshot current) {
+            if (previous.isConnected() != current.isConnected()) {
+                mainHandler.post(BleConnectionService.this::refreshNotification);
+            }
+            DeviceSession.Listener bound = observer;
+            if (bound != null) bound.onStateChanged(session, previous, current);
+        }
+
+        @Override
+        public void onCommandRejected(DeviceSession session) {
+            DeviceSession.Listener bound = observer;
+            if (bound != null) bound.onCommandRejected(session);
+        }
+    };
+}
@@ -0,0 +1,184 @@
+package com.example.projet;
+
+import android.os.Trace;
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+
+import com.example.projet.ble.AudioInputControls;
+import com.example.projet.ble.BleMetrics;
+import com.example.projet.ble.DeviceSession;
+import com.example.projet.ble.DeviceSnapshot;
+import com.example.projet.ble.MuteState;
+
+import java.util.Objects;
+
+/**
+ * Applies device snapshots from the BLE thread to the views, at most once per display frame.
+ * Only fields that differ from the last rendered snapshot are touched, and only the selected
+ * audio input is shown. Snapshots of a session other than the shown one are dropped.
+ * Post-to-frame delay feeds {@link BleMetrics#recordNotificationToUi}.
+ */
+final class ControlsFrameDispatcher implements Choreographer.FrameCallback {
+
+    /** Applies coalesced state to the views, always on the main thread. */
+    interface Renderer {
+        /** Null while the headset has not reported a MICS mute: the switch is reset and disabled. */
+        void renderMicMute(@Nullable MuteState mute);
+        void renderAudioDescription(@Nullable String description);
+        void renderAudioState(@Nullable String state);
+        /** Null while the input has no Audio Input State: the controls are reset and disabled. */
+        void renderAudioControls(@Nullable AudioInputControls controls);
+        void renderLinkInfo(@Nullable String linkInfo);
+        /** @param count audio inputs of the headset, {@code selected} being the one shown */
+        void renderInputSelector(int selected, int count);
+    }
+
+    private final Choreographer choreographer;
+    private final Renderer renderer;
+    private final Object lock = new Object();
+    @Nullable private volatile BleMetrics metrics;
+
+    // Guarded by lock
+    private boolean frameScheduled;
+    private long firstPostNanos;
+    @Nullable private DeviceSession shown;
+    @Nullable private DeviceSession pendingSession;
+    @Nullable private DeviceSnapshot pending;
+    private boolean renderAll;
+
+    // Main thread only
+    @Nullable private DeviceSnapshot rendered;
+    private int selectedInput;
+
+    @MainThread
+    ControlsFrameDispatcher(Renderer renderer) {
+        this.choreographer = Choreographer.getInstance();
+        this.renderer = renderer;
+    }
+
+    void setMetrics(@Nullable BleMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Switches the views to {@code session}, first input, rendering all of its current snapshot.
+     * Null stops rendering until the next call.
+     */
+    @MainThread
+    void show(@Nullable DeviceSession session) {
+        selectedInput = 0;
+        synchronized (lock) {
+            shown = session;
+            if (session == null) {
+                pendingSession = null;
+                pending = null;
+                return;
+            }
+            postLocked(session, session.getSnapshot(), true);
+        }
+    }
+
+    void postSnapshot(DeviceSession session, DeviceSnapshot snapshot) {
+        synchronized (lock) {
+            postLocked(session, snapshot, false);
+        }
+    }
+
+    /** Renders every field of {@code snapshot}, changed or not, e.g. after a rejected command. */
+    void repost(DeviceSession session, DeviceSnapshot snapshot) {
+        synchronized (lock) {
+            postLocked(session, snapshot, true);
+        }
+    }
+
+    /** Shows another audio input of the shown session. */
+    @MainThread
+    void selectInput(int input) {
+        selectedInput = input;
+        synchronized (lock) {
+            if (shown != null) postLocked(shown, shown.getSnapshot(), true);
+        }
+    }
+
+    @MainThread
+    int getSelectedInput() {
+        return selectedInput;
+    }
+
+    void cancel() {
+        synchronized (lock) {
+            choreographer.removeFrameCallback(this);
+            frameScheduled = false;
+        }
+    }
+
+    /** A late snapshot of a session that is no longer shown must not reach the views. */
+    private void postLocked(DeviceSession session, DeviceSnapshot snapshot, boolean all) {
+        if (session != shown) return;
+        pendingSession = session;
+        pending = snapshot;
+        renderAll |= all;
+        scheduleFrameLocked();
+    }
+
+    private void scheduleFrameLocked() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            firstPostNanos = System.nanoTime();
+            // Choreographer is thread-safe: the callback still runs on the main looper
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        DeviceSnapshot snapshot;
+        boolean all;
+        long postedNanos;
+        synchronized (lock) {
+            frameScheduled = false;
+            postedNanos = firstPostNanos;
+            snapshot = pendingSession == shown ? pending : null;
+            all = renderAll;
+            pendingSession = null;
+            pending = null;
+            renderAll = false;
+        }
+        if (snapshot == null) return;
+        DeviceSnapshot last = all ? null : rendered;
+        rendered = snapshot;
+        if (selectedInput >= snapshot.getInputCount()) {
+            selectedInput = 0;
+            last = null;
+        }
+        DeviceSnapshot.Input input = snapshot.getInput(selectedInput);
+        DeviceSnapshot.Input lastInput = last != null ? last.getInput(selectedInput) : null;
+        Trace.beginSection("BLE rendu contrôles");
+        try {
+            MuteState mute = snapshot.getMicMute();
+            if (last == null || mute != last.getMicMute()) renderer.renderMicMute(mute);
+            if (last == null || snapshot.getInputCount() != last.getInputCount()) {
+                renderer.renderInputSelector(selectedInput, snapshot.getInputCount());
+            }
+            if (lastInput == null || !Objects.equals(input.getDescription(), lastInput.getDescription())) {
+                renderer.renderAudioDescription(input.getDescription());
+            }
+            if (lastInput == null || !Objects.equals(input.getSummary(), lastInput.getSummary())) {
+                renderer.renderAudioState(input.getSummary());
+            }
+            AudioInputControls controls = input.getControls();
+            if (lastInput == null || !Objects.equals(controls, lastInput.getControls())) {
+                renderer.renderAudioControls(controls);
+            }
+            if (last == null || !Objects.equals(snapshot.getLinkInfo(), last.getLinkInfo())) {
+                renderer.renderLinkInfo(snapshot.getLinkInfo());
+            }
+        } finally {
+            Trace.endSection();
+        }
+        BleMetrics current = metrics;
+        if (current != null) current.recordNotificationToUi(System.nanoTime() - postedNanos);
+    }
+}
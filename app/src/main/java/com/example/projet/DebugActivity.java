@@ -0,0 +1,125 @@
+package com.example.projet;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.projet.ble.BleMetrics;
+import com.example.projet.ble.GattRecording;
+import com.example.projet.ble.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Debug-only screen listing the latency histograms of the BLE pipeline (count, p50, p90, p99,
+ * max), refreshed every second while visible. It also exports the GATT recordings of every
+ * session to {@code files/recordings}, for offline replay.
+ */
+public class DebugActivity extends AppCompatActivity {
+
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshRunnable = this::refresh;
+    private TextView tvMetrics;
+    private BleConnectionService connectionService;
+    private BleMetrics metrics;
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            connectionService = ((BleConnectionService.LocalBinder) binder).getService();
+            metrics = connectionService.getMetrics();
+            refresh();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            connectionService = null;
+            metrics = null;
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_debug);
+        tvMetrics = findViewById(R.id.tv_metrics);
+        findViewById(R.id.btn_reset_metrics).setOnClickListener(v -> {
+            if (metrics != null) metrics.reset();
+            refresh();
+        });
+        findViewById(R.id.btn_export_recordings).setOnClickListener(v -> exportRecordings());
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, BleConnectionService.class), serviceConnection, BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mainHandler.removeCallbacks(refreshRunnable);
+        connectionService = null;
+        metrics = null;
+        unbindService(serviceConnection);
+    }
+
+    private void refresh() {
+        mainHandler.removeCallbacks(refreshRunnable);
+        if (metrics == null) return;
+        Map<String, LatencyHistogram.Snapshot> snapshots = metrics.snapshot();
+        if (snapshots.isEmpty()) {
+            tvMetrics.setText("Aucune mesure pour l'instant.");
+        } else {
+            StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%-24s %6s %8s %8s %8s %8s%n",
+                    "", "n", "p50", "p90", "p99", "max"));
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+                LatencyHistogram.Snapshot snapshot = entry.getValue();
+                text.append(String.format(Locale.ROOT, "%-24s %6d %8s %8s %8s %8s%n", entry.getKey(), snapshot.getCount(),
+                        formatMicros(snapshot.getPercentileMicros(50)), formatMicros(snapshot.getPercentileMicros(90)),
+                        formatMicros(snapshot.getPercentileMicros(99)), formatMicros(snapshot.getMaxMicros())));
+            }
+            tvMetrics.setText(text);
+        }
+        mainHandler.postDelayed(refreshRunnable, REFRESH_INTERVAL_MS);
+    }
+
+    private void exportRecordings() {
+        BleConnectionService service = connectionService;
+        if (service == null) return;
+        Map<String, GattRecording> recordings = service.snapshotRecordings();
+        new Thread(() -> {
+            String message;
+            try {
+                List<File> files = service.writeRecordings(recordings);
+                message = files.size() + " enregistrement(s) exporté(s)";
+            } catch (IOException e) {
+                Log.e("BLE_DEBUG", "Export des enregistrements impossible", e);
+                message = "Export impossible : " + e.getMessage();
+            }
+            String result = message;
+            mainHandler.post(() -> Toast.makeText(this, result, Toast.LENGTH_SHORT).show());
+        }, "recording-export").start();
+    }
+
+    private static String formatMicros(long micros) {
+        if (micros < 1000) return micros + "µs";
+        return String.format(Locale.ROOT, "%.1fms", micros / 1000.0);
+    }
+}
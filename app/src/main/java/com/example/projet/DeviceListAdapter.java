@@ -0,0 +1,66 @@
+package com.example.projet;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.projet.ble.DiscoveredDevice;
+
+/** Scan results list; DiffUtil rebinds only the rows whose displayed content changed. */
+final class DeviceListAdapter extends ListAdapter<DiscoveredDevice, DeviceListAdapter.ViewHolder> {
+
+    interface OnDeviceClickListener {
+        void onDeviceClick(DiscoveredDevice device);
+    }
+
+    private static final DiffUtil.ItemCallback<DiscoveredDevice> DIFF_CALLBACK = new DiffUtil.ItemCallback<DiscoveredDevice>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull DiscoveredDevice oldItem, @NonNull DiscoveredDevice newItem) {
+            return oldItem.getAddress().equals(newItem.getAddress());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull DiscoveredDevice oldItem, @NonNull DiscoveredDevice newItem) {
+            return oldItem.sameContentAs(newItem);
+        }
+    };
+
+    private final OnDeviceClickListener clickListener;
+
+    DeviceListAdapter(OnDeviceClickListener clickListener) {
+        super(DIFF_CALLBACK);
+        this.clickListener = clickListener;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(android.R.layout.simple_list_item_2, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        DiscoveredDevice device = getItem(position);
+        holder.name.setText(device.getName());
+        holder.details.setText(device.getAddress() + "  " + device.getRssi() + " dBm");
+        holder.itemView.setOnClickListener(v -> clickListener.onDeviceClick(device));
+    }
+
+    static final class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView name;
+        final TextView details;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            name = itemView.findViewById(android.R.id.text1);
+            details = itemView.findViewById(android.R.id.text2);
+        }
+    }
+}
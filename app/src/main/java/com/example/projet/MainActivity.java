@@ -1,28 +1,28 @@
 package com.example.projet;
 
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_CONTROL_SERVICE_UUID;
+import static com.example.projet.ble.BleUuids.MIC_CONTROL_SERVICE_UUID;
+
 import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattDescriptor;
-import android.bluetooth.BluetoothGattService;
-import android.bluetooth.BluetoothProfile;
-import android.content.BroadcastReceiver;
-import android.content.Context;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.content.ComponentName;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Looper;
-import android.util.Log;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
 import android.view.View;
-import android.widget.ArrayAdapter;
-import android.widget.ListView;
+import android.widget.Button;
 import android.widget.ScrollView;
+import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -32,43 +32,74 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.switchmaterial.SwitchMaterial;
 
+import com.example.projet.ble.AudioInputControls;
+import com.example.projet.ble.BleScanner;
+import com.example.projet.ble.DeviceIndex;
+import com.example.projet.ble.DeviceSession;
+import com.example.projet.ble.DeviceSnapshot;
+import com.example.projet.ble.MuteState;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.Locale;
 import java.util.UUID;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final int REQUEST_PERMISSIONS_CODE = 123;
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothGatt bluetoothGatt;
-    private static final String TAG = "BLE_DEBUG";
 
-    // --- UUIDs ---
-    private static final UUID MIC_CONTROL_SERVICE_UUID = UUID.fromString("0000184D-0000-1000-8000-00805f9b34fb");
-    private static final UUID MIC_MUTE_UUID = UUID.fromString("00002BC3-0000-1000-8000-00805f9b34fb");
-    private static final UUID AUDIO_INPUT_CONTROL_SERVICE_UUID = UUID.fromString("00001843-0000-1000-8000-00805f9b34fb");
-    private static final UUID AUDIO_INPUT_STATE_UUID = UUID.fromString("00002b77-0000-1000-8000-00805f9b34fb");
-    private static final UUID AUDIO_INPUT_DESCRIPTION_UUID = UUID.fromString("00002b7c-0000-1000-8000-00805f9b34fb");
-    private static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+    // --- Scanning ---
+    private BleScanner bleScanner;
 
     // --- UI Elements ---
-    private ListView deviceListView;
-    private ArrayAdapter<String> deviceListAdapter;
-    private final List<String> discoveredDevices = new ArrayList<>();
+    private RecyclerView deviceListView;
+    private DeviceListAdapter deviceListAdapter;
+    private final DeviceIndex deviceIndex = new DeviceIndex();
     private ScrollView controlsScrollView;
     private SwitchMaterial switchMicMute;
     private TextView tvAudioDescription;
     private TextView tvAudioState;
+    private TextView tvLinkInfo;
+    private TextView tvInputGain;
+    private SeekBar seekInputGain;
+    private SwitchMaterial switchInputMute;
+    private SwitchMaterial switchAutoGain;
+    private Button btnNextInput;
+    /** While the user drags the gain slider, device updates must not move it under the finger. */
+    private boolean gainTracking;
+    private int gainUnits;
+    private ControlsFrameDispatcher controlsDispatcher;
+
+    // --- Connections live in the service, the activity only observes them ---
+    private BleConnectionService connectionService;
+    /** Session shown by the controls; written on the main thread, read from the BLE thread. */
+    private volatile DeviceSession activeSession;
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            connectionService = ((BleConnectionService.LocalBinder) binder).getService();
+            connectionService.setObserver(sessionListener);
+            controlsDispatcher.setMetrics(connectionService.getMetrics());
+            DeviceSession session = connectionService.getActiveSession();
+            if (session != null && !session.isClosed()) {
+                showControls(session);
+            } else if (activeSession != null) {
+                showDeviceList();
+            }
+        }
 
-    // --- BLE Command Queue ---
-    private final Queue<Runnable> commandQueue = new LinkedList<>();
-    private boolean isCommandQueueProcessing = false;
-    private Handler mainHandler;
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            controlsDispatcher.setMetrics(null);
+            connectionService = null;
+        }
+    };
 
     private final ActivityResultLauncher<Intent> requestEnableBluetoothLauncher =
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
@@ -83,7 +114,6 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
-        mainHandler = new Handler(Looper.getMainLooper());
 
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         if (bluetoothAdapter == null) {
@@ -91,106 +121,185 @@ public class MainActivity extends AppCompatActivity {
             finish();
             return;
         }
-
         // Initialize UI components
         deviceListView = findViewById(R.id.device_list);
         controlsScrollView = findViewById(R.id.controls_scroll_view);
         switchMicMute = findViewById(R.id.switch_mic_mute);
         tvAudioDescription = findViewById(R.id.tv_audio_description);
         tvAudioState = findViewById(R.id.tv_audio_state);
+        tvLinkInfo = findViewById(R.id.tv_link_info);
+        tvInputGain = findViewById(R.id.tv_input_gain);
+        seekInputGain = findViewById(R.id.seek_input_gain);
+        switchInputMute = findViewById(R.id.switch_input_mute);
+        switchAutoGain = findViewById(R.id.switch_auto_gain);
+        btnNextInput = findViewById(R.id.btn_next_input);
+        Button btnShowDevices = findViewById(R.id.btn_show_devices);
+        Button btnMuteAll = findViewById(R.id.btn_mute_all);
+        Button btnMetrics = findViewById(R.id.btn_metrics);
+        controlsDispatcher = new ControlsFrameDispatcher(new ControlsFrameDispatcher.Renderer() {
+            @Override
+            public void renderMicMute(MuteState mute) {
+                switchMicMute.setChecked(mute == MuteState.MUTED);
+                switchMicMute.setEnabled(mute != null && mute != MuteState.DISABLED);
+            }
 
-        deviceListAdapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, discoveredDevices);
-        deviceListView.setAdapter(deviceListAdapter);
+            @Override
+            public void renderAudioDescription(String description) {
+                tvAudioDescription.setText(description);
+            }
 
-        deviceListView.setOnItemClickListener((parent, view, position, id) -> {
-            String deviceInfo = discoveredDevices.get(position);
-            String deviceAddress = deviceInfo.substring(deviceInfo.length() - 17);
-            connectToDevice(bluetoothAdapter.getRemoteDevice(deviceAddress));
+            @Override
+            public void renderAudioState(String state) {
+                tvAudioState.setText(state);
+            }
+
+            @Override
+            public void renderAudioControls(AudioInputControls controls) {
+                if (controls == null) {
+                    // Nothing known yet for this input: never leave another headset's values
+                    seekInputGain.setEnabled(false);
+                    tvInputGain.setText("Gain");
+                    switchInputMute.setChecked(false);
+                    switchInputMute.setEnabled(false);
+                    switchAutoGain.setChecked(false);
+                    switchAutoGain.setEnabled(false);
+                    return;
+                }
+                gainUnits = controls.getGainUnits();
+                // Keep min <= max at every step, the widget clamps otherwise
+                if (controls.getMinimumGain() > seekInputGain.getMax()) {
+                    seekInputGain.setMax(controls.getMaximumGain());
+                    seekInputGain.setMin(controls.getMinimumGain());
+                } else {
+                    seekInputGain.setMin(controls.getMinimumGain());
+                    seekInputGain.setMax(controls.getMaximumGain());
+                }
+                seekInputGain.setEnabled(controls.isGainAdjustable());
+                if (!gainTracking) {
+                    seekInputGain.setProgress(controls.getGainSetting());
+                    renderGainLabel(controls.getGainSetting());
+                }
+                switchInputMute.setChecked(controls.getMute() == MuteState.MUTED);
+                switchInputMute.setEnabled(controls.getMute() != MuteState.DISABLED);
+                switchAutoGain.setChecked(controls.getGainMode().isAutomatic());
+                switchAutoGain.setEnabled(controls.getGainMode().isChangeable());
+            }
+
+            @Override
+            public void renderLinkInfo(String linkInfo) {
+                tvLinkInfo.setText(linkInfo);
+            }
+
+            @Override
+            public void renderInputSelector(int selected, int count) {
+                btnNextInput.setVisibility(count > 1 ? View.VISIBLE : View.GONE);
+                btnNextInput.setText("Entrée " + (selected + 1) + "/" + count);
+            }
         });
 
+        deviceListAdapter = new DeviceListAdapter(device -> connectToDevice(bluetoothAdapter.getRemoteDevice(device.getAddress())));
+        deviceListView.setLayoutManager(new LinearLayoutManager(this));
+        deviceListView.setAdapter(deviceListAdapter);
+
         switchMicMute.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            if (buttonView.isPressed()) { // Only react to user interaction
-                byte[] value = new byte[]{(byte) (isChecked ? 1 : 0)};
-                commandQueue.add(() -> writeCharacteristic(bluetoothGatt, MIC_CONTROL_SERVICE_UUID, MIC_MUTE_UUID, value));
-                processNextCommand();
+            DeviceSession session = activeSession;
+            if (buttonView.isPressed() && session != null) { // Only react to user interaction
+                session.writeMicMute(isChecked);
             }
         });
+        seekInputGain.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                DeviceSession session = activeSession;
+                if (!fromUser || session == null) return;
+                renderGainLabel(progress);
+                session.setInputGain(controlsDispatcher.getSelectedInput(), progress);
+            }
 
-        registerReceiver(discoveryReceiver, new IntentFilter(BluetoothDevice.ACTION_FOUND));
-        checkAndRequestPermissions();
-    }
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {
+                gainTracking = true;
+            }
 
-    private void writeCharacteristic(BluetoothGatt bluetoothGatt, UUID micControlServiceUuid, UUID micMuteUuid, byte[] value) {
-        if (bluetoothGatt == null) {
-            Log.e(TAG, "writeCharacteristic: bluetoothGatt null");
-            signalCommandProcessed();
-            return;
-        }
-        if (micControlServiceUuid == null || micMuteUuid == null) {
-            Log.e(TAG, "writeCharacteristic: uuid null");
-            signalCommandProcessed();
-            return;
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                gainTracking = false;
+            }
+        });
+        switchInputMute.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            DeviceSession session = activeSession;
+            if (buttonView.isPressed() && session != null) session.setInputMuted(controlsDispatcher.getSelectedInput(), isChecked);
+        });
+        switchAutoGain.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            DeviceSession session = activeSession;
+            if (buttonView.isPressed() && session != null) session.setInputAutomaticGain(controlsDispatcher.getSelectedInput(), isChecked);
+        });
+        btnNextInput.setOnClickListener(v -> {
+            DeviceSession session = activeSession;
+            if (session == null) return;
+            controlsDispatcher.selectInput((controlsDispatcher.getSelectedInput() + 1) % session.getSnapshot().getInputCount());
+        });
+        // Back to the list without dropping any connection
+        btnShowDevices.setOnClickListener(v -> showDeviceList());
+        btnMuteAll.setOnClickListener(v -> {
+            if (connectionService != null) connectionService.getSessionManager().muteAll(true);
+        });
+        if (BuildConfig.DEBUG) {
+            btnMetrics.setVisibility(View.VISIBLE);
+            btnMetrics.setOnClickListener(v -> startActivity(new Intent(this, DebugActivity.class)));
         }
 
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
-            Log.e(TAG, "writeCharacteristic: missing BLUETOOTH_CONNECT permission");
-            signalCommandProcessed();
-            return;
-        }
+        bleScanner = new BleScanner(this, bluetoothAdapter, new Handler(Looper.getMainLooper()), new BleScanner.Listener() {
+            @Override
+            public void onScanResults(List<ScanResult> results) {
+                MainActivity.this.onScanResults(results);
+            }
 
-        BluetoothGattService service = bluetoothGatt.getService(micControlServiceUuid);
-        if (service == null) {
-            Log.e(TAG, "writeCharacteristic: service not found " + micControlServiceUuid);
-            signalCommandProcessed();
-            return;
-        }
+            @Override
+            public void onScanFailed(int errorCode) {
+                Toast.makeText(MainActivity.this, "Recherche impossible (" + errorCode + ")", Toast.LENGTH_SHORT).show();
+            }
+        }, MIC_CONTROL_SERVICE_UUID, AUDIO_INPUT_CONTROL_SERVICE_UUID);
+        checkAndRequestPermissions();
+    }
 
-        BluetoothGattCharacteristic characteristic = service.getCharacteristic(micMuteUuid);
-        if (characteristic == null) {
-            Log.e(TAG, "writeCharacteristic: characteristic not found " + micMuteUuid);
-            signalCommandProcessed();
-            return;
+    /** Forwards the active session's events to the controls; the other sessions keep running unseen. */
+    private final DeviceSession.Listener sessionListener = new DeviceSession.Listener() {
+        @Override
+        public void onStateChanged(DeviceSession session, DeviceSnapshot previous, DeviceSnapshot current) {
+            if (session != activeSession) return;
+            controlsDispatcher.postSnapshot(session, current);
+            if (!previous.isConnected() || current.isConnected()) return;
+            runOnUiThread(() -> {
+                if (session != activeSession) return;
+                if (!session.isClosed()) {
+                    // The session reconnects on its own; progress shows in the link line
+                    Toast.makeText(MainActivity.this, "Connexion perdue, reconnexion en cours", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                Toast.makeText(MainActivity.this, "Déconnecté de " + session.getAddress(), Toast.LENGTH_SHORT).show();
+                showDeviceList();
+            });
         }
 
-        if ((characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE) == 0
-                && (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) == 0) {
-            Log.e(TAG, "writeCharacteristic: characteristic not writable " + micMuteUuid);
-            signalCommandProcessed();
-            return;
+        @Override
+        public void onCommandRejected(DeviceSession session) {
+            if (session == activeSession) controlsDispatcher.repost(session, session.getSnapshot());
         }
+    };
 
-        // Use modern API on TIRAMISU+ which returns request id (int)
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                int req = bluetoothGatt.writeCharacteristic(characteristic, value, BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
-                Log.d(TAG, "writeCharacteristic (new API) requestId=" + req + " for " + micMuteUuid);
-                if (req <= 0) {
-                    Log.e(TAG, "writeCharacteristic: request start failed (requestId=" + req + ")");
-                    signalCommandProcessed();
-                }
-            } else {
-                characteristic.setValue(value);
-                boolean started = bluetoothGatt.writeCharacteristic(characteristic);
-                Log.d(TAG, "writeCharacteristic (legacy) started=" + started + " for " + micMuteUuid);
-                if (!started) {
-                    Log.e(TAG, "writeCharacteristic: start failed");
-                    signalCommandProcessed();
-                }
-            }
-        } catch (SecurityException e) {
-            Log.e(TAG, "writeCharacteristic: SecurityException", e);
-            signalCommandProcessed();
-        } catch (Exception e) {
-            Log.e(TAG, "writeCharacteristic: Exception", e);
-            signalCommandProcessed();
-        }
+    /** Gain in dB once Gain Setting Properties are known (steps of 0.1 dB), raw setting before. */
+    private void renderGainLabel(int gainSetting) {
+        tvInputGain.setText(gainUnits > 0
+                ? String.format(Locale.getDefault(), "Gain : %.1f dB", gainSetting * gainUnits / 10f)
+                : "Gain : " + gainSetting);
     }
 
     private void checkAndRequestPermissions() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
             if (ContextCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED ||
                 ContextCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_SCAN) != PackageManager.PERMISSION_GRANTED) {
-                ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.BLUETOOTH_CONNECT, Manifest.permission.BLUETOOTH_SCAN}, REQUEST_PERMISSIONS_CODE);
+                ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.BLUETOOTH_CONNECT, Manifest.permission.BLUETOOTH_SCAN, Manifest.permission.POST_NOTIFICATIONS}, REQUEST_PERMISSIONS_CODE);
             } else {
                 enableBluetooth();
             }
@@ -217,202 +326,104 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private final BroadcastReceiver discoveryReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            if (BluetoothDevice.ACTION_FOUND.equals(intent.getAction())) {
-                BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
-                if (device != null && (ActivityCompat.checkSelfPermission(MainActivity.this, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED || Build.VERSION.SDK_INT < Build.VERSION_CODES.S)) {
-                    String deviceName = device.getName();
-                    String deviceAddress = device.getAddress();
-                    if (deviceName != null && !deviceName.isEmpty()) {
-                        String deviceInfo = deviceName + "\n" + deviceAddress;
-                        if (!discoveredDevices.contains(deviceInfo)) {
-                            discoveredDevices.add(deviceInfo);
-                            deviceListAdapter.notifyDataSetChanged();
-                        }
-                    }
-                }
+    private void onScanResults(List<ScanResult> results) {
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) return;
+        long now = SystemClock.elapsedRealtime();
+        boolean changed = false;
+        for (ScanResult result : results) {
+            BluetoothDevice device = result.getDevice();
+            ScanRecord record = result.getScanRecord();
+            String deviceName = device.getName();
+            if ((deviceName == null || deviceName.isEmpty()) && record != null) {
+                deviceName = record.getDeviceName();
             }
+            if (deviceName == null || deviceName.isEmpty()) deviceName = "Appareil inconnu";
+            List<UUID> serviceUuids = new ArrayList<>();
+            if (record != null && record.getServiceUuids() != null) {
+                for (ParcelUuid uuid : record.getServiceUuids()) serviceUuids.add(uuid.getUuid());
+            }
+            changed |= deviceIndex.onAdvertisement(device.getAddress(), deviceName, result.getRssi(), now, serviceUuids);
         }
-    };
+        if (changed) deviceListAdapter.submitList(deviceIndex.snapshot());
+    }
 
     private void startDiscovery() {
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_SCAN) != PackageManager.PERMISSION_GRANTED) return;
-        if (bluetoothAdapter.isDiscovering()) bluetoothAdapter.cancelDiscovery();
-        discoveredDevices.clear();
-        deviceListAdapter.notifyDataSetChanged();
-        bluetoothAdapter.startDiscovery();
+        deviceIndex.clear();
+        deviceListAdapter.submitList(null);
+        bleScanner.start(BleScanner.Mode.INTERACTIVE);
+    }
+
+    private void showDeviceList() {
+        activeSession = null;
+        if (connectionService != null) connectionService.setActiveSession(null);
+        controlsDispatcher.show(null);
+        deviceListView.setVisibility(View.VISIBLE);
+        controlsScrollView.setVisibility(View.GONE);
+        startDiscovery();
     }
 
+    /** Shows the device's controls, connecting first unless it already has a live session. */
     private void connectToDevice(BluetoothDevice device) {
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED) {
-            if (bluetoothAdapter.isDiscovering()) bluetoothAdapter.cancelDiscovery();
+        if (connectionService == null) return;
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED && Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return;
         }
-        runOnUiThread(() -> {
-            deviceListView.setVisibility(View.GONE);
-            controlsScrollView.setVisibility(View.VISIBLE);
+        DeviceSession existing = connectionService.getSessionManager().get(device.getAddress());
+        boolean connected = existing != null && existing.isConnected();
+        DeviceSession session = connectionService.connect(device);
+        showControls(session);
+        if (!connected) {
             Toast.makeText(this, "Connexion à " + device.getAddress() + "...", Toast.LENGTH_SHORT).show();
-        });
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED || Build.VERSION.SDK_INT < Build.VERSION_CODES.S) {
-            bluetoothGatt = device.connectGatt(this, false, gattCallback);
         }
     }
 
-    private synchronized void processNextCommand() {
-        if (isCommandQueueProcessing) return;
-        if (commandQueue.isEmpty()) return;
-        isCommandQueueProcessing = true;
-        mainHandler.post(commandQueue.poll());
+    /** Switches to the session's controls and replays its current state into them. */
+    private void showControls(DeviceSession session) {
+        bleScanner.setMode(BleScanner.Mode.BACKGROUND);
+        deviceListView.setVisibility(View.GONE);
+        controlsScrollView.setVisibility(View.VISIBLE);
+        activeSession = session;
+        connectionService.setActiveSession(session);
+        controlsDispatcher.show(session);
     }
 
-    private synchronized void signalCommandProcessed() {
-        isCommandQueueProcessing = false;
-        processNextCommand();
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, BleConnectionService.class), serviceConnection, BIND_AUTO_CREATE);
     }
 
-    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
-        @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
-            if (newState == BluetoothProfile.STATE_CONNECTED) {
-                Log.d(TAG, "Connecté au serveur GATT.");
-                commandQueue.clear();
-                isCommandQueueProcessing = false;
-                mainHandler.postDelayed(() -> {
-                    if (ActivityCompat.checkSelfPermission(MainActivity.this, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-                        gatt.discoverServices();
-                    }
-                }, 600);
-            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
-                Log.d(TAG, "Déconnecté du serveur GATT.");
-                commandQueue.clear();
-                isCommandQueueProcessing = false;
-                runOnUiThread(() -> {
-                    deviceListView.setVisibility(View.VISIBLE);
-                    controlsScrollView.setVisibility(View.GONE);
-                });
-            }
-        }
-
-        @Override
-        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-            if (status != BluetoothGatt.GATT_SUCCESS) return;
-
-            BluetoothGattService micService = gatt.getService(MIC_CONTROL_SERVICE_UUID);
-            if (micService != null) {
-                commandQueue.add(() -> subscribeToCharacteristic(gatt, micService.getCharacteristic(MIC_MUTE_UUID)));
-            }
-            BluetoothGattService audioService = gatt.getService(AUDIO_INPUT_CONTROL_SERVICE_UUID);
-            if (audioService != null) {
-                commandQueue.add(() -> readCharacteristic(gatt, audioService.getCharacteristic(AUDIO_INPUT_DESCRIPTION_UUID)));
-                commandQueue.add(() -> subscribeToCharacteristic(gatt, audioService.getCharacteristic(AUDIO_INPUT_STATE_UUID)));
-            }
-            processNextCommand();
-        }
-
-        @Override
-        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                commandQueue.add(() -> readCharacteristic(gatt, descriptor.getCharacteristic()));
-            }
-            signalCommandProcessed();
-        }
-
-        @Override
-        public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value, int status) {
-            if (status == BluetoothGatt.GATT_SUCCESS) {
-                handleCharacteristicValue(characteristic.getUuid(), value);
-            }
-            signalCommandProcessed();
-        }
-
-        @Override
-        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value) {
-            handleCharacteristicValue(characteristic.getUuid(), value);
-        }
-        
-        @Override
-        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-            if(status == BluetoothGatt.GATT_SUCCESS) {
-                 Log.d(TAG, "Ecriture OK pour " + characteristic.getUuid());
-            } else {
-                 Log.e(TAG, "Ecriture échouée pour " + characteristic.getUuid() + " statut: " + status);
-            }
-            signalCommandProcessed();
-        }
-
-        private void subscribeToCharacteristic(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            if (characteristic == null) { signalCommandProcessed(); return; }
-            if (ActivityCompat.checkSelfPermission(MainActivity.this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) { signalCommandProcessed(); return; }
-            gatt.setCharacteristicNotification(characteristic, true);
-            BluetoothGattDescriptor descriptor = characteristic.getDescriptor(CCCD_UUID);
-            if (descriptor == null) { signalCommandProcessed(); return; }
-            byte[] value = (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0
-                    ? BluetoothGattDescriptor.ENABLE_INDICATION_VALUE : BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                gatt.writeDescriptor(descriptor, value);
-            } else {
-                descriptor.setValue(value);
-                gatt.writeDescriptor(descriptor);
-            }
-        }
-
-        private void readCharacteristic(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            if (characteristic == null || (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_READ) == 0) {
-                 signalCommandProcessed(); return; 
-            }
-            if (ActivityCompat.checkSelfPermission(MainActivity.this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
-                 signalCommandProcessed(); return; 
-            }
-            gatt.readCharacteristic(characteristic);
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (connectionService != null) {
+            connectionService.setObserver(null);
+            // Leaving for good, not just rotating or going to the background
+            if (isFinishing()) connectionService.disconnectAll();
+            connectionService = null;
         }
+        unbindService(serviceConnection);
+    }
 
-        private void writeCharacteristic(BluetoothGatt gatt, UUID serviceUuid, UUID charUuid, byte[] value) {
-             if (gatt == null) { signalCommandProcessed(); return; }
-             BluetoothGattService service = gatt.getService(serviceUuid);
-             if (service == null) { signalCommandProcessed(); return; }
-             BluetoothGattCharacteristic characteristic = service.getCharacteristic(charUuid);
-             if (characteristic == null || (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE) == 0) {
-                  signalCommandProcessed(); return; 
-             }
-             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                 gatt.writeCharacteristic(characteristic, value, BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
-             } else {
-                 characteristic.setValue(value);
-                 gatt.writeCharacteristic(characteristic);
-             }
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (deviceListView.getVisibility() == View.VISIBLE) {
+            bleScanner.setMode(BleScanner.Mode.INTERACTIVE);
         }
+    }
 
-        private void handleCharacteristicValue(UUID uuid, byte[] data) {
-            if (data == null) return;
-
-            if (MIC_MUTE_UUID.equals(uuid)) {
-                if (data.length > 0) {
-                    boolean isMuted = data[0] == 1;
-                    runOnUiThread(() -> switchMicMute.setChecked(isMuted));
-                }
-            } else if (AUDIO_INPUT_DESCRIPTION_UUID.equals(uuid)) {
-                String description = new String(data);
-                runOnUiThread(() -> tvAudioDescription.setText(description));
-            } else if (AUDIO_INPUT_STATE_UUID.equals(uuid)) {
-                if (data.length >= 3) {
-                    String state = String.format("Gain:%d, Mute:%s, Mode:%s", (data[0] & 0xFF), (data[1] == 1 ? "Muet" : "Non muet"), (data[2] == 0 ? "Manual" : "Auto"));
-                    runOnUiThread(() -> tvAudioState.setText(state));
-                }
-            }
-        }
-    };
+    @Override
+    protected void onPause() {
+        super.onPause();
+        bleScanner.setMode(BleScanner.Mode.BACKGROUND);
+    }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        mainHandler.removeCallbacksAndMessages(null);
-        if (bluetoothGatt != null) {
-            if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED || Build.VERSION.SDK_INT < Build.VERSION_CODES.S) {
-                bluetoothGatt.close();
-                bluetoothGatt = null;
-            }
-        }
-        unregisterReceiver(discoveryReceiver);
+        if (bleScanner == null) return;
+        controlsDispatcher.cancel();
+        bleScanner.stop();
     }
 }
@@ -0,0 +1,337 @@
+package com.example.projet.ble;
+
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_CONTROL_SERVICE_UUID;
+import static com.example.projet.ble.BleUuids.CCCD_UUID;
+import static com.example.projet.ble.BleUuids.MIC_CONTROL_SERVICE_UUID;
+
+import android.Manifest;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.bluetooth.BluetoothStatusCodes;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link GattTransport} over a {@code BluetoothGatt} client. AICS instances are enumerated on
+ * each discovery, primary or included by MICS, and numbered in handle order. Callbacks of a
+ * client that was already closed are dropped.
+ *
+ * <p>Runs on the BLE handler thread, which the stack delivers the callbacks on; the service
+ * lookups may be called from any thread.
+ */
+final class AndroidGattTransport implements GattTransport {
+
+    private static final String TAG = "BLE_DEBUG";
+
+    private final Context context;
+    private final BluetoothDevice device;
+    private final Handler handler;
+    private final int phyMask;
+
+    @Nullable private volatile BluetoothGatt bluetoothGatt;
+    @Nullable private Callback callback;
+    /** AICS instances of the last discovery in handle order, primary or included by MICS. */
+    private volatile List<BluetoothGattService> audioInputServices = Collections.emptyList();
+
+    AndroidGattTransport(Context context, BluetoothDevice device, Handler handler, int phyMask) {
+        this.context = context.getApplicationContext();
+        this.device = device;
+        this.handler = handler;
+        this.phyMask = phyMask;
+    }
+
+    @Override
+    public String getAddress() {
+        return device.getAddress();
+    }
+
+    @Override
+    public boolean isBonded() {
+        return hasConnectPermission() && device.getBondState() == BluetoothDevice.BOND_BONDED;
+    }
+
+    @Override
+    public void connect(boolean autoConnect, Callback callback) {
+        if (!hasConnectPermission()) {
+            Log.e(TAG, "connect: missing BLUETOOTH_CONNECT permission");
+            return;
+        }
+        this.callback = callback;
+        bluetoothGatt = device.connectGatt(context, autoConnect, gattCallback, BluetoothDevice.TRANSPORT_LE, phyMask, handler);
+    }
+
+    @Override
+    public void close() {
+        BluetoothGatt gatt = bluetoothGatt;
+        bluetoothGatt = null;
+        callback = null;
+        audioInputServices = Collections.emptyList();
+        if (gatt != null && hasConnectPermission()) {
+            gatt.disconnect();
+            gatt.close();
+        }
+    }
+
+    @Override
+    public List<String> describeLayout() {
+        List<String> layout = new ArrayList<>();
+        BluetoothGatt gatt = bluetoothGatt;
+        if (gatt == null) return layout;
+        for (BluetoothGattService service : gatt.getServices()) {
+            for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+                layout.add(GattAttributeCache.layoutLine(service.getUuid(), characteristic.getUuid(), characteristic.getProperties()));
+            }
+        }
+        Collections.sort(layout);
+        return layout;
+    }
+
+    @Override
+    public int getServiceCount(UUID serviceUuid) {
+        if (AUDIO_INPUT_CONTROL_SERVICE_UUID.equals(serviceUuid)) return audioInputServices.size();
+        return findService(serviceUuid, 0) != null ? 1 : 0;
+    }
+
+    @Override
+    public boolean hasCharacteristic(UUID serviceUuid, UUID characteristicUuid) {
+        return findCharacteristic(serviceUuid, characteristicUuid, 0) != null;
+    }
+
+    @Override
+    public boolean supportsWriteWithoutResponse(UUID serviceUuid, UUID characteristicUuid) {
+        BluetoothGattCharacteristic characteristic = findCharacteristic(serviceUuid, characteristicUuid, 0);
+        return characteristic != null
+                && (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0;
+    }
+
+    @Override
+    public boolean enableLocalNotifications(UUID serviceUuid, UUID characteristicUuid, int instance) {
+        BluetoothGatt gatt = bluetoothGatt;
+        if (gatt == null || !hasConnectPermission()) return false;
+        BluetoothGattCharacteristic characteristic = findCharacteristic(serviceUuid, characteristicUuid, instance);
+        return characteristic != null && gatt.setCharacteristicNotification(characteristic, true);
+    }
+
+    private boolean hasConnectPermission() {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /** Runs a scheduled operation against the current client. Called on the handler thread. */
+    @Override
+    public boolean start(GattOperation operation) {
+        BluetoothGatt gatt = bluetoothGatt;
+        if (gatt == null) {
+            Log.e(TAG, "startOperation: bluetoothGatt null");
+            return false;
+        }
+        if (!hasConnectPermission()) {
+            Log.e(TAG, "startOperation: missing BLUETOOTH_CONNECT permission");
+            return false;
+        }
+
+        switch (operation.getType()) {
+            case REQUEST_MTU:
+                return gatt.requestMtu(operation.getIntArg());
+            case CONNECTION_PRIORITY:
+                return gatt.requestConnectionPriority(operation.getIntArg());
+            case SET_PREFERRED_PHY:
+                // No return value, and onPhyUpdate may not follow: the queue moves on right away
+                gatt.setPreferredPhy(operation.getIntArg(), operation.getIntArg(), BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+                return true;
+            case DISCOVER_SERVICES:
+                return gatt.discoverServices();
+            default:
+                break;
+        }
+
+        BluetoothGattService service = findService(operation.getServiceUuid(), operation.getServiceInstance());
+        if (service == null) {
+            Log.e(TAG, "startOperation: service not found " + operation.getServiceUuid());
+            return false;
+        }
+        BluetoothGattCharacteristic characteristic = service.getCharacteristic(operation.getCharacteristicUuid());
+        if (characteristic == null) {
+            Log.e(TAG, "startOperation: characteristic not found " + operation.getCharacteristicUuid());
+            return false;
+        }
+        int properties = characteristic.getProperties();
+
+        switch (operation.getType()) {
+            case READ:
+                if ((properties & BluetoothGattCharacteristic.PROPERTY_READ) == 0) return false;
+                return gatt.readCharacteristic(characteristic);
+            case WRITE:
+            case WRITE_NO_RESPONSE: {
+                boolean noResponse = operation.getType() == GattOperation.Type.WRITE_NO_RESPONSE;
+                int requiredProperty = noResponse ? BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE : BluetoothGattCharacteristic.PROPERTY_WRITE;
+                if ((properties & requiredProperty) == 0) {
+                    Log.e(TAG, "startOperation: characteristic not writable " + characteristic.getUuid());
+                    return false;
+                }
+                int writeType = noResponse ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
+                return gatt.writeCharacteristic(characteristic, operation.getValue(), writeType) == BluetoothStatusCodes.SUCCESS;
+            }
+            case DESCRIPTOR_WRITE: {
+                BluetoothGattDescriptor descriptor = characteristic.getDescriptor(operation.getDescriptorUuid());
+                if (descriptor == null) return false;
+                byte[] value = operation.getValue();
+                if (CCCD_UUID.equals(descriptor.getUuid())) {
+                    if (value == null) {
+                        value = (properties & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0
+                                ? BluetoothGattDescriptor.ENABLE_INDICATION_VALUE : BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE;
+                    }
+                    boolean enable = !Arrays.equals(value, BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
+                    if (!gatt.setCharacteristicNotification(characteristic, enable)) return false;
+                }
+                return gatt.writeDescriptor(descriptor, value) == BluetoothStatusCodes.SUCCESS;
+            }
+            default:
+                return false;
+        }
+    }
+
+    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+        @Override
+        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            Callback callback = callbackFor(gatt);
+            if (callback == null) return;
+            if (newState == BluetoothProfile.STATE_CONNECTED) {
+                callback.onConnected();
+            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+                audioInputServices = Collections.emptyList();
+                callback.onDisconnected(status);
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+            Callback callback = callbackFor(gatt);
+            if (callback == null) return;
+            if (status == BluetoothGatt.GATT_SUCCESS) audioInputServices = findAudioInputServices(gatt);
+            callback.onServicesDiscovered(status);
+        }
+
+        @Override
+        public void onServiceChanged(@NonNull BluetoothGatt gatt) {
+            // Service Changed indication, handled by the stack: the discovered layout is stale
+            Callback callback = callbackFor(gatt);
+            if (callback == null) return;
+            audioInputServices = Collections.emptyList();
+            callback.onServiceChanged();
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            Callback callback = callbackFor(gatt);
+            if (callback == null) return;
+            BluetoothGattCharacteristic characteristic = descriptor.getCharacteristic();
+            callback.onDescriptorWrite(characteristic.getUuid(), instanceOf(characteristic), descriptor.getUuid(), status);
+        }
+
+        @Override
+        public void onCharacteristicRead(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] value, int status) {
+            Callback callback = callbackFor(gatt);
+            if (callback != null) callback.onCharacteristicRead(characteristic.getUuid(), instanceOf(characteristic), status, value);
+        }
+
+        @Override
+        public void onCharacteristicChanged(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic, @NonNull byte[] value) {
+            Callback callback = callbackFor(gatt);
+            if (callback != null) callback.onCharacteristicChanged(characteristic.getUuid(), instanceOf(characteristic), value);
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            Callback callback = callbackFor(gatt);
+            if (callback != null) callback.onCharacteristicWrite(characteristic.getUuid(), instanceOf(characteristic), status);
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            Callback callback = callbackFor(gatt);
+            if (callback != null) callback.onMtuChanged(mtu, status);
+        }
+
+        @Override
+        public void onPhyUpdate(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+            Callback callback = callbackFor(gatt);
+            if (callback != null) callback.onPhyUpdate(txPhy, status);
+        }
+    };
+
+    /** Null for a late callback of a client we already closed. */
+    @Nullable
+    private Callback callbackFor(BluetoothGatt gatt) {
+        return gatt == bluetoothGatt ? callback : null;
+    }
+
+    /**
+     * Every AICS instance, in handle order: primary services and secondary ones included by
+     * MICS, the same instance counted once. The stack's own service objects are preferred over
+     * the copies listed as included services.
+     */
+    private static List<BluetoothGattService> findAudioInputServices(BluetoothGatt gatt) {
+        List<BluetoothGattService> inputs = new ArrayList<>();
+        for (BluetoothGattService service : gatt.getServices()) {
+            if (AUDIO_INPUT_CONTROL_SERVICE_UUID.equals(service.getUuid())) inputs.add(service);
+        }
+        BluetoothGattService mics = gatt.getService(MIC_CONTROL_SERVICE_UUID);
+        if (mics != null) {
+            for (BluetoothGattService included : mics.getIncludedServices()) {
+                if (AUDIO_INPUT_CONTROL_SERVICE_UUID.equals(included.getUuid()) && indexOfInstance(inputs, included) < 0) {
+                    inputs.add(included);
+                }
+            }
+        }
+        inputs.sort((a, b) -> Integer.compare(a.getInstanceId(), b.getInstanceId()));
+        return inputs;
+    }
+
+    private static int indexOfInstance(List<BluetoothGattService> services, BluetoothGattService service) {
+        for (int i = 0; i < services.size(); i++) {
+            if (services.get(i).getInstanceId() == service.getInstanceId()) return i;
+        }
+        return -1;
+    }
+
+    /** The {@code instance}-th service of that UUID on the current client; AICS instances as enumerated on discovery. */
+    @Nullable
+    private BluetoothGattService findService(@Nullable UUID serviceUuid, int instance) {
+        if (AUDIO_INPUT_CONTROL_SERVICE_UUID.equals(serviceUuid)) {
+            List<BluetoothGattService> inputs = audioInputServices;
+            return instance >= 0 && instance < inputs.size() ? inputs.get(instance) : null;
+        }
+        BluetoothGatt gatt = bluetoothGatt;
+        return gatt != null && instance == 0 ? gatt.getService(serviceUuid) : null;
+    }
+
+    @Nullable
+    private BluetoothGattCharacteristic findCharacteristic(UUID serviceUuid, UUID characteristicUuid, int instance) {
+        BluetoothGattService service = findService(serviceUuid, instance);
+        return service != null ? service.getCharacteristic(characteristicUuid) : null;
+    }
+
+    /** @return the rank of the characteristic's service among its instances, -1 for an unknown AICS instance. */
+    private int instanceOf(BluetoothGattCharacteristic characteristic) {
+        BluetoothGattService service = characteristic.getService();
+        if (service == null || !AUDIO_INPUT_CONTROL_SERVICE_UUID.equals(service.getUuid())) return 0;
+        return indexOfInstance(audioInputServices, service);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.projet.ble;
+
+import android.os.Trace;
+
+/** {@link Tracer} backed by {@code android.os.Trace}, visible in Perfetto and systrace captures. */
+public final class AndroidTracer implements Tracer {
+
+    @Override
+    public boolean isEnabled() {
+        return Trace.isEnabled();
+    }
+
+    @Override
+    public void beginAsyncSection(String name, int cookie) {
+        Trace.beginAsyncSection(name, cookie);
+    }
+
+    @Override
+    public void endAsyncSection(String name, int cookie) {
+        Trace.endAsyncSection(name, cookie);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.projet.ble;
+
+import android.Manifest;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.ParcelUuid;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * LE scanner restricted in hardware to devices advertising the Microphone Control or Audio
+ * Input Control services. Results are batched by the controller (report delay) and the scan
+ * stops by itself after {@link #SCAN_DURATION_MS}.
+ */
+public final class BleScanner {
+
+    private static final String TAG = "BLE_DEBUG";
+
+    public static final long SCAN_DURATION_MS = 20000;
+
+    public enum Mode {
+        /** Picker on screen: fastest time to first result. */
+        INTERACTIVE(ScanSettings.SCAN_MODE_LOW_LATENCY, 500),
+        /** Picker hidden or app in background. */
+        BACKGROUND(ScanSettings.SCAN_MODE_LOW_POWER, 5000);
+
+        final int scanMode;
+        final long reportDelayMs;
+
+        Mode(int scanMode, long reportDelayMs) {
+            this.scanMode = scanMode;
+            this.reportDelayMs = reportDelayMs;
+        }
+    }
+
+    public interface Listener {
+        /** Called on the handler thread, with one or more (batched) results. */
+        void onScanResults(List<ScanResult> results);
+
+        void onScanFailed(int errorCode);
+    }
+
+    private final Context context;
+    private final BluetoothAdapter adapter;
+    private final Handler handler;
+    private final Listener listener;
+    private final List<ScanFilter> filters;
+
+    @Nullable private Mode mode;
+    private final Runnable stopRunnable = this::stop;
+
+    private final ScanCallback scanCallback = new ScanCallback() {
+        @Override
+        public void onScanResult(int callbackType, ScanResult result) {
+            listener.onScanResults(Collections.singletonList(result));
+        }
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            if (!results.isEmpty()) listener.onScanResults(results);
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            Log.e(TAG, "Scan échoué: " + errorCode);
+            mode = null;
+            handler.removeCallbacks(stopRunnable);
+            listener.onScanFailed(errorCode);
+        }
+    };
+
+    public BleScanner(Context context, BluetoothAdapter adapter, Handler handler, Listener listener, UUID... serviceUuids) {
+        this.context = context.getApplicationContext();
+        this.adapter = adapter;
+        this.handler = handler;
+        this.listener = listener;
+        List<ScanFilter> serviceFilters = new ArrayList<>(serviceUuids.length);
+        for (UUID serviceUuid : serviceUuids) {
+            serviceFilters.add(new ScanFilter.Builder().setServiceUuid(new ParcelUuid(serviceUuid)).build());
+        }
+        this.filters = Collections.unmodifiableList(serviceFilters);
+    }
+
+    public boolean isScanning() {
+        return mode != null;
+    }
+
+    /** Starts (or restarts) a scan that stops after {@link #SCAN_DURATION_MS}. */
+    public void start(Mode mode) {
+        stop();
+        BluetoothLeScanner scanner = adapter.getBluetoothLeScanner();
+        if (scanner == null || !hasScanPermission()) return;
+
+        ScanSettings.Builder settings = new ScanSettings.Builder()
+                .setScanMode(mode.scanMode)
+                .setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES);
+        if (adapter.isOffloadedScanBatchingSupported()) {
+            settings.setReportDelay(mode.reportDelayMs);
+        }
+        scanner.startScan(filters, settings.build(), scanCallback);
+        this.mode = mode;
+        handler.postDelayed(stopRunnable, SCAN_DURATION_MS);
+    }
+
+    /** Switches a running scan to another mode; no-op when idle or already in that mode. */
+    public void setMode(Mode mode) {
+        if (this.mode != null && this.mode != mode) start(mode);
+    }
+
+    public void stop() {
+        handler.removeCallbacks(stopRunnable);
+        if (mode == null) return;
+        mode = null;
+        BluetoothLeScanner scanner = adapter.getBluetoothLeScanner();
+        if (scanner != null && hasScanPermission()) {
+            scanner.flushPendingScanResults(scanCallback);
+            scanner.stopScan(scanCallback);
+        }
+    }
+
+    private boolean hasScanPermission() {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED;
+    }
+}
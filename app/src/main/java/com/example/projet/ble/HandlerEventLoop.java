@@ -0,0 +1,28 @@
+package com.example.projet.ble;
+
+import android.os.Handler;
+
+/** {@link EventLoop} backed by the BLE worker thread's {@link Handler}. */
+final class HandlerEventLoop implements EventLoop {
+
+    private final Handler handler;
+
+    HandlerEventLoop(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void post(Runnable task) {
+        handler.post(task);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        handler.postDelayed(task, delayMs);
+    }
+
+    @Override
+    public void removeCallbacks(Runnable task) {
+        handler.removeCallbacks(task);
+    }
+}
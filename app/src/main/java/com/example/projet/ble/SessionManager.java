@@ -0,0 +1,89 @@
+package com.example.projet.ble;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.content.Context;
+import android.os.Handler;
+
+import androidx.annotation.Nullable;
+
+import com.example.projet.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Owns the connections to every headset the operator controls. Sessions share the BLE handler
+ * thread, the attribute cache and one {@link GattOperationScheduler}, which keeps at most
+ * {@link GattOperationScheduler#DEFAULT_MAX_IN_FLIGHT} requests outstanding on the controller.
+ *
+ * <p>The session map is confined to the main thread.
+ */
+public final class SessionManager {
+
+    private final Context context;
+    private final BluetoothAdapter adapter;
+    private final Handler handler;
+    private final EventLoop eventLoop;
+    private final GattOperationScheduler scheduler;
+    private final GattAttributeCache attributeCache;
+    private final DeviceSession.Listener listener;
+    private final Map<String, DeviceSession> sessions = new LinkedHashMap<>();
+
+    public SessionManager(Context context, BluetoothAdapter adapter, Handler handler, GattAttributeCache attributeCache,
+                          BleMetrics metrics, DeviceSession.Listener listener) {
+        this.context = context.getApplicationContext();
+        this.adapter = adapter;
+        this.handler = handler;
+        this.attributeCache = attributeCache;
+        this.listener = listener;
+        this.eventLoop = new HandlerEventLoop(handler);
+        this.scheduler = new GattOperationScheduler(eventLoop, GattOperationScheduler.DEFAULT_MAX_IN_FLIGHT,
+                metrics, new AndroidTracer());
+    }
+
+    /** Connects to the device, reusing its session when it already has one. */
+    public DeviceSession connect(BluetoothDevice device) {
+        DeviceSession session = sessions.get(device.getAddress());
+        if (session == null) {
+            int phyMask = adapter.isLe2MPhySupported()
+                    ? BluetoothDevice.PHY_LE_1M_MASK | BluetoothDevice.PHY_LE_2M_MASK : BluetoothDevice.PHY_LE_1M_MASK;
+            session = new DeviceSession(new AndroidGattTransport(context, device, handler, phyMask), eventLoop, scheduler,
+                    attributeCache, adapter.isLe2MPhySupported(), BuildConfig.DEBUG, listener);
+            sessions.put(device.getAddress(), session);
+        }
+        if (!session.isConnected()) session.connect();
+        return session;
+    }
+
+    @Nullable
+    public DeviceSession get(String address) {
+        return sessions.get(address);
+    }
+
+    public List<DeviceSession> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    /**
+     * Mutes or unmutes every connected headset. The writes are queued on each session at once
+     * and run in parallel, up to the scheduler's in-flight limit.
+     */
+    public CompletableFuture<Void> muteAll(boolean muted) {
+        List<CompletableFuture<GattResult>> writes = new ArrayList<>();
+        for (DeviceSession session : sessions.values()) {
+            if (session.isConnected()) writes.add(session.writeMicMute(muted));
+        }
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    public void closeAll() {
+        for (DeviceSession session : sessions.values()) {
+            session.close();
+        }
+        sessions.clear();
+    }
+}
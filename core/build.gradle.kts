@@ -0,0 +1,48 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    compileOnly(libs.annotation)
+    testImplementation(libs.junit)
+    jmhCompileOnly(libs.annotation)
+}
+
+tasks.test {
+    useJUnit {
+        excludeCategories("com.example.projet.ble.Soak")
+    }
+}
+
+// ./gradlew :core:soakTest -Psoak.minutes=240 — simulated headsets under faults and random
+// input; prints throughput, tail latency and heap use, fails on divergence or heap growth.
+val soakTest by tasks.registering(Test::class) {
+    description = "Runs the soak tests against simulated GATT peripherals."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnit {
+        includeCategories("com.example.projet.ble.Soak")
+    }
+    systemProperty("soak.minutes", providers.gradleProperty("soak.minutes").getOrElse("1"))
+    maxHeapSize = "256m"
+    testLogging.showStandardStreams = true
+    outputs.upToDateWhen { false }
+}
+
+// ./gradlew :core:jmh — results in core/build/results/jmh/results.json.
+// The gc profiler reports gc.alloc.rate.norm, the bytes allocated per operation.
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
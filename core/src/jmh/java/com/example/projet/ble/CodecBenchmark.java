@@ -0,0 +1,65 @@
+package com.example.projet.ble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode throughput of the MICS/AICS codecs. Consecutive payloads always differ, so every call
+ * takes the full decode path instead of the unchanged-value shortcut.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodecBenchmark {
+
+    private static final int PAYLOADS = 16;
+    private static final int MASK = PAYLOADS - 1;
+
+    private final MicMuteState micMute = new MicMuteState();
+    private final AudioInputState audioInputState = new AudioInputState();
+    private final AudioInputDescription audioInputDescription = new AudioInputDescription();
+
+    private final byte[][] mutePayloads = new byte[PAYLOADS][];
+    private final byte[][] statePayloads = new byte[PAYLOADS][];
+    private final byte[][] descriptionPayloads = new byte[PAYLOADS][];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < PAYLOADS; i++) {
+            mutePayloads[i] = new byte[]{(byte) (i & 1)};
+            statePayloads[i] = new byte[]{(byte) (i - 8), (byte) (i & 1), (byte) (2 + (i & 1)), (byte) i};
+            descriptionPayloads[i] = ("Micro interne " + i).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public boolean decodeMicMute() {
+        return micMute.decode(mutePayloads[index++ & MASK]);
+    }
+
+    @Benchmark
+    public boolean decodeAudioInputState() {
+        return audioInputState.decode(statePayloads[index++ & MASK]);
+    }
+
+    /** Decode plus the display string, rebuilt on every call since the gain always changes. */
+    @Benchmark
+    public String decodeAndRenderAudioInputState() {
+        audioInputState.decode(statePayloads[index++ & MASK]);
+        return audioInputState.render();
+    }
+
+    @Benchmark
+    public boolean decodeAudioInputDescription() {
+        return audioInputDescription.decode(descriptionPayloads[index++ & MASK]);
+    }
+}
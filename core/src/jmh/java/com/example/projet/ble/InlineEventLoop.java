@@ -0,0 +1,21 @@
+package com.example.projet.ble;
+
+/**
+ * Runs posted work immediately on the calling thread and drops delayed work, so a benchmark
+ * measures the queue and scheduler themselves rather than a message loop. Timeouts never fire.
+ */
+final class InlineEventLoop implements EventLoop {
+
+    @Override
+    public void post(Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+    }
+
+    @Override
+    public void removeCallbacks(Runnable task) {
+    }
+}
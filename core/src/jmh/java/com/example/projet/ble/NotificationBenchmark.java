@@ -0,0 +1,80 @@
+package com.example.projet.ble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one notification through {@link HeadsetState}, from the raw value to the listener.
+ * Read gc.alloc.rate.norm from the gc profiler: repeated values must stay at 0 B/op, a changed
+ * Audio Input State may only allocate its display string and controls snapshot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NotificationBenchmark {
+
+    private final byte[] muted = {1};
+    private final byte[] unmuted = {0};
+    private final byte[] gainLow = {-10, 0, 2, 1};
+    private final byte[] gainHigh = {10, 0, 2, 2};
+
+    private HeadsetState state;
+    private boolean toggle;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        state = new HeadsetState(new HeadsetState.Listener() {
+            @Override
+            public void onMicMuteChanged(MuteState mute) {
+                blackhole.consume(mute);
+            }
+
+            @Override
+            public void onAudioDescriptionChanged(int input, String description) {
+                blackhole.consume(description);
+            }
+
+            @Override
+            public void onAudioInputStateChanged(int input, String rendered) {
+                blackhole.consume(rendered);
+            }
+
+            @Override
+            public void onAudioInputControlsChanged(int input, AudioInputControls controls) {
+                blackhole.consume(controls);
+            }
+        });
+        state.onValue(BleUuids.MIC_MUTE_UUID, muted);
+        state.onValue(BleUuids.AUDIO_INPUT_STATE_UUID, gainLow);
+    }
+
+    @Benchmark
+    public boolean micMuteUnchanged() {
+        return state.onValue(BleUuids.MIC_MUTE_UUID, muted);
+    }
+
+    @Benchmark
+    public boolean micMuteChanged() {
+        toggle = !toggle;
+        return state.onValue(BleUuids.MIC_MUTE_UUID, toggle ? unmuted : muted);
+    }
+
+    @Benchmark
+    public boolean audioInputStateUnchanged() {
+        return state.onValue(BleUuids.AUDIO_INPUT_STATE_UUID, gainLow);
+    }
+
+    @Benchmark
+    public boolean audioInputStateChanged() {
+        toggle = !toggle;
+        return state.onValue(BleUuids.AUDIO_INPUT_STATE_UUID, toggle ? gainHigh : gainLow);
+    }
+}
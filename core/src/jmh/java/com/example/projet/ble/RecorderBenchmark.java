@@ -0,0 +1,81 @@
+package com.example.projet.ble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one notification (must stay at 0 B/op), and offline replay throughput of a
+ * whole recording through the decoders. Point the {@code recording} parameter at a {@code .grec}
+ * file exported from the debug screen to replay a field session instead of the synthetic one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecorderBenchmark {
+
+    @Param({""})
+    public String recording;
+
+    private final byte[] audioInputState = {-10, 0, 2, 1};
+    private final GattRecorder recorder = new GattRecorder();
+    private GattRecording replayed;
+    private long timestamp;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (!recording.isEmpty()) {
+            replayed = GattRecording.readFrom(Paths.get(recording));
+            return;
+        }
+        // Slider sweep: gain notifications interleaved with mute toggles, a few duplicates
+        GattRecorder synthetic = new GattRecorder();
+        for (int i = 0; i < GattRecorder.DEFAULT_CAPACITY; i++) {
+            if (i % 8 == 0) {
+                synthetic.record(i * 7_500_000L, GattRecording.NOTIFICATION, BleUuids.MIC_MUTE_UUID, 0, 0, new byte[]{(byte) (i / 8 % 2)});
+            } else {
+                synthetic.record(i * 7_500_000L, GattRecording.NOTIFICATION, BleUuids.AUDIO_INPUT_STATE_UUID, 0, 0,
+                        new byte[]{(byte) (i % 40 - 20), 0, 2, (byte) (i / 2)});
+            }
+        }
+        replayed = synthetic.snapshot();
+    }
+
+    @Benchmark
+    public void recordNotification() {
+        recorder.record(timestamp++, GattRecording.NOTIFICATION, BleUuids.AUDIO_INPUT_STATE_UUID, 0, 0, audioInputState);
+    }
+
+    /** Divide by the record count for the per-notification cost. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int replayRecording() {
+        HeadsetState state = new HeadsetState(new HeadsetState.Listener() {
+            @Override
+            public void onMicMuteChanged(MuteState mute) {
+            }
+
+            @Override
+            public void onAudioDescriptionChanged(int input, String description) {
+            }
+
+            @Override
+            public void onAudioInputStateChanged(int input, String rendered) {
+            }
+
+            @Override
+            public void onAudioInputControlsChanged(int input, AudioInputControls controls) {
+            }
+        });
+        return new GattReplayer(replayed, state).replayAll();
+    }
+}
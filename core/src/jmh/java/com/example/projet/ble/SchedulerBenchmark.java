@@ -0,0 +1,75 @@
+package com.example.projet.ble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enqueue, dispatch and completion cost of the operation queue and the shared scheduler, with
+ * a runner that accepts every request and an event loop that runs posts inline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SchedulerBenchmark {
+
+    private static final UUID SERVICE = BleUuids.MIC_CONTROL_SERVICE_UUID;
+    private static final UUID MUTE = BleUuids.MIC_MUTE_UUID;
+    private static final int BURST = 8;
+
+    @Param({"1", "4", "8"})
+    public int connections;
+
+    private GattOperationQueue[] queues;
+    private final byte[] value = {1};
+    private int next;
+
+    @Setup
+    public void setUp() {
+        GattOperationScheduler scheduler = new GattOperationScheduler(new InlineEventLoop(),
+                GattOperationScheduler.DEFAULT_MAX_IN_FLIGHT);
+        queues = new GattOperationQueue[connections];
+        for (int i = 0; i < connections; i++) {
+            queues[i] = scheduler.openQueue(operation -> true);
+        }
+    }
+
+    private GattOperationQueue nextQueue() {
+        GattOperationQueue queue = queues[next];
+        next = (next + 1) % connections;
+        return queue;
+    }
+
+    /** One write from enqueue to completed future. */
+    @Benchmark
+    public GattResult enqueueDispatchComplete() {
+        GattOperationQueue queue = nextQueue();
+        CompletableFuture<GattResult> future = queue.enqueue(
+                GattOperation.write(SERVICE, MUTE, value).withPriority(GattOperation.Priority.HIGH));
+        queue.onOperationCompleted(GattOperation.Type.WRITE, MUTE, GattResult.GATT_SUCCESS, null, 0);
+        return future.getNow(null);
+    }
+
+    /** A burst of coalescing writes queued behind a read: only the last one goes on air. */
+    @Benchmark
+    public GattResult coalescingBurst() {
+        GattOperationQueue queue = nextQueue();
+        queue.enqueue(GattOperation.read(SERVICE, MUTE));
+        CompletableFuture<GattResult> last = null;
+        for (int i = 0; i < BURST; i++) {
+            last = queue.enqueue(GattOperation.write(SERVICE, MUTE, value).coalescing());
+        }
+        queue.onOperationCompleted(GattOperation.Type.READ, MUTE, GattResult.GATT_SUCCESS, value, 0);
+        queue.onOperationCompleted(GattOperation.Type.WRITE, MUTE, GattResult.GATT_SUCCESS, null, 0);
+        return last.getNow(null);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.projet.ble;
+
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_DESCRIPTION_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_STATE_UUID;
+import static com.example.projet.ble.BleUuids.GAIN_SETTING_PROPERTIES_UUID;
+
+import java.util.UUID;
+
+/**
+ * Decoded state of one AICS instance. A headset exposes one instance per audio input, either as
+ * primary services or included by MICS; {@link #getIndex()} is the instance's rank in handle
+ * order, which is also how operations and cached values address it. Confined to the event loop
+ * thread.
+ */
+public final class AudioInput {
+
+    private final int index;
+    private final DecoderRegistry decoders = new DecoderRegistry();
+    private final AudioInputState state = new AudioInputState();
+    private final AudioInputDescription description = new AudioInputDescription();
+    private final GainSettingProperties gainSettingProperties = new GainSettingProperties();
+
+    AudioInput(int index, HeadsetState.Listener listener) {
+        this.index = index;
+        decoders.register(AUDIO_INPUT_STATE_UUID, state, () -> {
+            listener.onAudioInputStateChanged(index, state.render());
+            listener.onAudioInputControlsChanged(index, getControls());
+        });
+        decoders.register(GAIN_SETTING_PROPERTIES_UUID, gainSettingProperties, () -> {
+            if (state.getMute() != null) listener.onAudioInputControlsChanged(index, getControls());
+        });
+        decoders.register(AUDIO_INPUT_DESCRIPTION_UUID, description,
+                () -> listener.onAudioDescriptionChanged(index, description.getDescription()));
+    }
+
+    /** @return true when the value changed the decoded state. */
+    boolean onValue(UUID characteristicUuid, byte[] data) {
+        return decoders.dispatch(characteristicUuid, data);
+    }
+
+    public int getIndex() { return index; }
+    public AudioInputState getState() { return state; }
+    public AudioInputDescription getDescription() { return description; }
+    public GainSettingProperties getGainSettingProperties() { return gainSettingProperties; }
+
+    /** Only meaningful once an Audio Input State was decoded. */
+    public AudioInputControls getControls() {
+        return new AudioInputControls(state, gainSettingProperties);
+    }
+}
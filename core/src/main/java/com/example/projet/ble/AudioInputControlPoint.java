@@ -0,0 +1,38 @@
+package com.example.projet.ble;
+
+/**
+ * AICS Audio Input Control Point (0x2B7B) requests. Every request carries the change counter
+ * of the Audio Input State it was based on; the server rejects it with
+ * {@link #ERROR_INVALID_CHANGE_COUNTER} when the state moved on in the meantime.
+ */
+public final class AudioInputControlPoint {
+
+    private AudioInputControlPoint() {
+    }
+
+    // --- Opcodes ---
+    static final int OPCODE_SET_GAIN_SETTING = 0x01;
+    static final int OPCODE_UNMUTE = 0x02;
+    static final int OPCODE_MUTE = 0x03;
+    static final int OPCODE_SET_MANUAL_GAIN_MODE = 0x04;
+    static final int OPCODE_SET_AUTOMATIC_GAIN_MODE = 0x05;
+
+    // --- Application error codes, reported as the ATT write status ---
+    public static final int ERROR_INVALID_CHANGE_COUNTER = 0x80;
+    public static final int ERROR_OPCODE_NOT_SUPPORTED = 0x81;
+    public static final int ERROR_MUTE_DISABLED = 0x82;
+    public static final int ERROR_VALUE_OUT_OF_RANGE = 0x83;
+    public static final int ERROR_GAIN_MODE_CHANGE_NOT_ALLOWED = 0x84;
+
+    public static byte[] setGainSetting(int changeCounter, int gainSetting) {
+        return new byte[]{OPCODE_SET_GAIN_SETTING, (byte) changeCounter, (byte) gainSetting};
+    }
+
+    public static byte[] setMuted(int changeCounter, boolean muted) {
+        return new byte[]{(byte) (muted ? OPCODE_MUTE : OPCODE_UNMUTE), (byte) changeCounter};
+    }
+
+    public static byte[] setAutomaticGainMode(int changeCounter, boolean automatic) {
+        return new byte[]{(byte) (automatic ? OPCODE_SET_AUTOMATIC_GAIN_MODE : OPCODE_SET_MANUAL_GAIN_MODE), (byte) changeCounter};
+    }
+}
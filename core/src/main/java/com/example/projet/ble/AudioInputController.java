@@ -0,0 +1,207 @@
+package com.example.projet.ble;
+
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_CONTROL_POINT_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_CONTROL_SERVICE_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_STATE_UUID;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.CancellationException;
+import java.util.logging.Logger;
+
+/**
+ * Drives the Audio Input Control Point of one AICS instance from UI targets (gain slider, input
+ * mute, gain mode).
+ *
+ * <p>Only the latest target of each kind is kept, and at most one request is outstanding: the
+ * next one leaves when the previous was acknowledged <em>and</em> the Audio Input State
+ * notification carrying the new change counter arrived. The pipeline therefore runs at the
+ * link's actual round-trip rate however fast the slider moves. A stale-counter rejection
+ * triggers one re-read of the state and one retry; a second rejection drops the target.
+ *
+ * <p>Targets may be set from any thread; everything else runs on the event loop thread.
+ */
+public final class AudioInputController {
+
+    private static final Logger LOG = Logger.getLogger("BLE_DEBUG");
+
+    /** Fallback when the state notification does not follow an accepted request. */
+    static final long STATE_NOTIFICATION_TIMEOUT_MS = 1000;
+
+    public interface Listener {
+        /** A target was dropped; the UI should fall back to the last decoded state. */
+        void onCommandFailed();
+    }
+
+    private enum Kind { MUTE, GAIN_MODE, GAIN }
+
+    private final EventLoop eventLoop;
+    private final GattOperationQueue queue;
+    private final AudioInput input;
+    private final Listener listener;
+    private final Runnable stateTimeout = this::onStateTimeout;
+
+    // --- Confined to the event loop thread ---
+    @Nullable private Boolean targetMuted;
+    @Nullable private Boolean targetAutomatic;
+    @Nullable private Integer targetGain;
+    private boolean inFlight;
+    private boolean awaitingState;
+    private boolean retried;
+
+    public AudioInputController(EventLoop eventLoop, GattOperationQueue queue, AudioInput input, Listener listener) {
+        this.eventLoop = eventLoop;
+        this.queue = queue;
+        this.input = input;
+        this.listener = listener;
+    }
+
+    public void setGain(int gainSetting) {
+        eventLoop.post(() -> {
+            targetGain = gainSetting;
+            pump();
+        });
+    }
+
+    public void setMuted(boolean muted) {
+        eventLoop.post(() -> {
+            targetMuted = muted;
+            pump();
+        });
+    }
+
+    public void setAutomaticGainMode(boolean automatic) {
+        eventLoop.post(() -> {
+            targetAutomatic = automatic;
+            pump();
+        });
+    }
+
+    /** A new Audio Input State was decoded: the change counter is current again. */
+    public void onStateChanged() {
+        if (awaitingState) {
+            awaitingState = false;
+            eventLoop.removeCallbacks(stateTimeout);
+        }
+        pump();
+    }
+
+    /** Drops every target, e.g. after a disconnection. */
+    public void reset() {
+        eventLoop.post(() -> {
+            eventLoop.removeCallbacks(stateTimeout);
+            targetMuted = null;
+            targetAutomatic = null;
+            targetGain = null;
+            awaitingState = false;
+            retried = false;
+        });
+    }
+
+    private void pump() {
+        if (inFlight || awaitingState) return;
+        AudioInputState state = input.getState();
+        if (state.getMute() == null || state.getChangeCounter() < 0) return;
+        int counter = state.getChangeCounter();
+
+        if (targetMuted != null) {
+            boolean muted = targetMuted;
+            if (state.getMute() == MuteState.DISABLED || muted == (state.getMute() == MuteState.MUTED)) {
+                targetMuted = null;
+            } else {
+                send(Kind.MUTE, muted ? 1 : 0, counter, AudioInputControlPoint.setMuted(counter, muted));
+                return;
+            }
+        }
+        if (targetAutomatic != null) {
+            boolean automatic = targetAutomatic;
+            if (!state.getGainMode().isChangeable() || automatic == state.getGainMode().isAutomatic()) {
+                targetAutomatic = null;
+            } else {
+                send(Kind.GAIN_MODE, automatic ? 1 : 0, counter, AudioInputControlPoint.setAutomaticGainMode(counter, automatic));
+                return;
+            }
+        }
+        if (targetGain != null) {
+            int gain = input.getGainSettingProperties().clamp(targetGain);
+            if (state.getGainMode().isAutomatic() || gain == state.getGainSetting()) {
+                targetGain = null;
+            } else {
+                send(Kind.GAIN, gain, counter, AudioInputControlPoint.setGainSetting(counter, gain));
+            }
+        }
+    }
+
+    private void send(Kind kind, int value, int counter, byte[] request) {
+        inFlight = true;
+        queue.enqueue(GattOperation.write(AUDIO_INPUT_CONTROL_SERVICE_UUID, AUDIO_INPUT_CONTROL_POINT_UUID, request)
+                        .onInstance(input.getIndex())
+                        .withPriority(GattOperation.Priority.HIGH))
+                .whenComplete((result, error) -> {
+                    inFlight = false;
+                    if (error instanceof CancellationException) return; // disconnected, reset() follows
+                    if (error == null && result.isSuccess()) {
+                        retried = false;
+                        clearIfUnchanged(kind, value);
+                        if (input.getState().getChangeCounter() == counter) {
+                            awaitingState = true;
+                            eventLoop.postDelayed(stateTimeout, STATE_NOTIFICATION_TIMEOUT_MS);
+                        } else {
+                            pump(); // the notification beat the write response
+                        }
+                        return;
+                    }
+                    int status = error == null ? result.getStatus() : -1;
+                    if (status == AudioInputControlPoint.ERROR_INVALID_CHANGE_COUNTER && !retried) {
+                        retried = true;
+                        resync();
+                        return;
+                    }
+                    LOG.warning("Commande AICS " + kind + " refusée, statut: " + status);
+                    retried = false;
+                    clear(kind);
+                    listener.onCommandFailed();
+                    pump();
+                });
+    }
+
+    /** Re-reads the state; its decoded value refreshes the counter before the next attempt. */
+    private void resync() {
+        awaitingState = true;
+        queue.enqueue(GattOperation.read(AUDIO_INPUT_CONTROL_SERVICE_UUID, AUDIO_INPUT_STATE_UUID)
+                        .onInstance(input.getIndex())
+                        .withPriority(GattOperation.Priority.HIGH))
+                .whenComplete((result, error) -> {
+                    if (error instanceof CancellationException) return;
+                    awaitingState = false;
+                    pump();
+                });
+    }
+
+    private void onStateTimeout() {
+        if (awaitingState) resync();
+    }
+
+    /** An accepted target is done, unless the UI moved it again while it was in flight. */
+    private void clearIfUnchanged(Kind kind, int value) {
+        switch (kind) {
+            case MUTE:
+                if (targetMuted != null && (targetMuted ? 1 : 0) == value) targetMuted = null;
+                break;
+            case GAIN_MODE:
+                if (targetAutomatic != null && (targetAutomatic ? 1 : 0) == value) targetAutomatic = null;
+                break;
+            case GAIN:
+                if (targetGain != null && input.getGainSettingProperties().clamp(targetGain) == value) targetGain = null;
+                break;
+        }
+    }
+
+    private void clear(Kind kind) {
+        switch (kind) {
+            case MUTE: targetMuted = null; break;
+            case GAIN_MODE: targetAutomatic = null; break;
+            case GAIN: targetGain = null; break;
+        }
+    }
+}
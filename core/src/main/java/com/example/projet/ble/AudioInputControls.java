@@ -0,0 +1,58 @@
+package com.example.projet.ble;
+
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of what the AICS controls need, safe to hand from the BLE thread to the
+ * UI: current gain and its range, input mute and gain mode. Equal when every field is, so a
+ * notification that only bumps the change counter yields an equal snapshot.
+ */
+public final class AudioInputControls {
+
+    private final int gainSetting;
+    private final int minimumGain;
+    private final int maximumGain;
+    private final int gainUnits;
+    private final MuteState mute;
+    private final GainMode gainMode;
+
+    AudioInputControls(AudioInputState state, GainSettingProperties properties) {
+        this.gainSetting = state.getGainSetting();
+        this.minimumGain = properties.getMinimum();
+        this.maximumGain = properties.getMaximum();
+        this.gainUnits = properties.getUnits();
+        this.mute = state.getMute();
+        this.gainMode = state.getGainMode();
+    }
+
+    public int getGainSetting() { return gainSetting; }
+    public int getMinimumGain() { return minimumGain; }
+    public int getMaximumGain() { return maximumGain; }
+    /** Gain step in 0.1 dB, 0 while Gain Setting Properties are unknown. */
+    public int getGainUnits() { return gainUnits; }
+    public MuteState getMute() { return mute; }
+    public GainMode getGainMode() { return gainMode; }
+
+    /** Gain writes are only honoured in a manual mode. */
+    public boolean isGainAdjustable() {
+        return gainMode != null && !gainMode.isAutomatic();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AudioInputControls)) return false;
+        AudioInputControls other = (AudioInputControls) o;
+        return gainSetting == other.gainSetting
+                && minimumGain == other.minimumGain
+                && maximumGain == other.maximumGain
+                && gainUnits == other.gainUnits
+                && mute == other.mute
+                && gainMode == other.gainMode;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gainSetting, minimumGain, maximumGain, gainUnits, mute, gainMode);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.projet.ble;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * AICS Audio Input Description characteristic (0x2B7C), a UTF-8 string. The raw bytes are kept
+ * so that repeated notifications of the same description are not decoded again.
+ */
+public final class AudioInputDescription implements CharacteristicDecoder {
+
+    private byte[] raw = new byte[0];
+    private int rawLength;
+    private String description = "";
+
+    @Override
+    public boolean decode(byte[] data) {
+        if (Arrays.equals(raw, 0, rawLength, data, 0, data.length)) return false;
+        if (raw.length < data.length) raw = new byte[data.length];
+        System.arraycopy(data, 0, raw, 0, data.length);
+        rawLength = data.length;
+        description = new String(data, StandardCharsets.UTF_8);
+        return true;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
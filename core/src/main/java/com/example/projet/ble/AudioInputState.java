@@ -0,0 +1,63 @@
+package com.example.projet.ble;
+
+/**
+ * AICS Audio Input State characteristic (0x2B77): gain setting (sint8), mute, gain mode and
+ * change counter. The display string is cached and only rebuilt when a displayed field changes.
+ */
+public final class AudioInputState implements CharacteristicDecoder {
+
+    private static final int LENGTH = 4;
+
+    private int gainSetting;
+    private MuteState mute;
+    private GainMode gainMode;
+    private int changeCounter = -1;
+
+    private final StringBuilder renderBuffer = new StringBuilder(48);
+    private String rendered = "";
+    private boolean renderDirty = true;
+
+    @Override
+    public boolean decode(byte[] data) {
+        // The change counter is optional in older firmwares we met, the first three fields are not
+        if (data.length < LENGTH - 1) return false;
+        int newGain = data[0];
+        MuteState newMute = MuteState.fromValue(data[1] & 0xFF);
+        GainMode newMode = GainMode.fromValue(data[2] & 0xFF);
+        if (newMute == null || newMode == null) return false;
+        int newCounter = data.length >= LENGTH ? data[3] & 0xFF : changeCounter;
+
+        boolean displayChanged = newGain != gainSetting || newMute != mute || newMode != gainMode;
+        boolean changed = displayChanged || newCounter != changeCounter;
+        gainSetting = newGain;
+        mute = newMute;
+        gainMode = newMode;
+        changeCounter = newCounter;
+        if (displayChanged) renderDirty = true;
+        return changed;
+    }
+
+    public int getGainSetting() { return gainSetting; }
+    public MuteState getMute() { return mute; }
+    public GainMode getGainMode() { return gainMode; }
+    public int getChangeCounter() { return changeCounter; }
+
+    /** @return "Gain:&lt;n&gt;, Mute:&lt;..&gt;, Mode:&lt;..&gt;", the same instance while nothing changed. */
+    public String render() {
+        if (renderDirty) {
+            renderBuffer.setLength(0);
+            renderBuffer.append("Gain:").append(gainSetting)
+                    .append(", Mute:").append(muteLabel(mute))
+                    .append(", Mode:").append(gainMode != null && gainMode.isAutomatic() ? "Auto" : "Manual");
+            rendered = renderBuffer.toString();
+            renderDirty = false;
+        }
+        return rendered;
+    }
+
+    private static String muteLabel(MuteState mute) {
+        if (mute == MuteState.MUTED) return "Muet";
+        if (mute == MuteState.DISABLED) return "Désactivé";
+        return "Non muet";
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.projet.ble;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency histograms of the GATT pipeline, shared by every session: queue wait and round trip
+ * per operation type, connect-to-controls-ready, notification-to-UI and recovery after a
+ * dropout. Fixed memory, safe to record from any thread.
+ */
+public final class BleMetrics {
+
+    private static final GattOperation.Type[] TYPES = GattOperation.Type.values();
+
+    private final LatencyHistogram[] queueWait = new LatencyHistogram[TYPES.length];
+    private final LatencyHistogram[] roundTrip = new LatencyHistogram[TYPES.length];
+    private final LatencyHistogram connectToReady = new LatencyHistogram();
+    private final LatencyHistogram notificationToUi = new LatencyHistogram();
+    private final LatencyHistogram recovery = new LatencyHistogram();
+
+    public BleMetrics() {
+        for (int i = 0; i < TYPES.length; i++) {
+            queueWait[i] = new LatencyHistogram();
+            roundTrip[i] = new LatencyHistogram();
+        }
+    }
+
+    /** From {@code enqueue} to the request being handed to the stack. */
+    public void recordQueueWait(GattOperation.Type type, long elapsedNanos) {
+        queueWait[type.ordinal()].record(elapsedNanos);
+    }
+
+    /** From the request being handed to the stack to its callback, timeouts included. */
+    public void recordRoundTrip(GattOperation.Type type, long elapsedNanos) {
+        roundTrip[type.ordinal()].record(elapsedNanos);
+    }
+
+    /** From {@code connectGatt} to the initial subscribes and reads being done. */
+    public void recordConnectToReady(long elapsedNanos) {
+        connectToReady.record(elapsedNanos);
+    }
+
+    /** From a decoded value being posted to the frame that rendered it. */
+    public void recordNotificationToUi(long elapsedNanos) {
+        notificationToUi.record(elapsedNanos);
+    }
+
+    /** From losing a ready link to its controls being ready again: time to recover control. */
+    public void recordRecovery(long elapsedNanos) {
+        recovery.record(elapsedNanos);
+    }
+
+    /** @return the histograms that recorded something, by display label, in pipeline order. */
+    public Map<String, LatencyHistogram.Snapshot> snapshot() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+        for (GattOperation.Type type : TYPES) {
+            putIfRecorded(snapshots, "Attente " + type, queueWait[type.ordinal()]);
+            putIfRecorded(snapshots, "Aller-retour " + type, roundTrip[type.ordinal()]);
+        }
+        putIfRecorded(snapshots, "Connexion → contrôles", connectToReady);
+        putIfRecorded(snapshots, "Notification → UI", notificationToUi);
+        putIfRecorded(snapshots, "Reprise après coupure", recovery);
+        return snapshots;
+    }
+
+    public void reset() {
+        for (int i = 0; i < TYPES.length; i++) {
+            queueWait[i].reset();
+            roundTrip[i].reset();
+        }
+        connectToReady.reset();
+        notificationToUi.reset();
+        recovery.reset();
+    }
+
+    private static void putIfRecorded(Map<String, LatencyHistogram.Snapshot> snapshots, String label,
+                                      LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        if (snapshot.getCount() > 0) snapshots.put(label, snapshot);
+    }
+}
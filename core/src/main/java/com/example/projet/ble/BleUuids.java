@@ -0,0 +1,27 @@
+package com.example.projet.ble;
+
+import java.util.UUID;
+
+/** Assigned numbers used by the app: Microphone Control and Audio Input Control services. */
+public final class BleUuids {
+
+    private BleUuids() {
+    }
+
+    // --- Microphone Control Service (MICS) ---
+    public static final UUID MIC_CONTROL_SERVICE_UUID = UUID.fromString("0000184D-0000-1000-8000-00805f9b34fb");
+    public static final UUID MIC_MUTE_UUID = UUID.fromString("00002BC3-0000-1000-8000-00805f9b34fb");
+
+    // --- Audio Input Control Service (AICS) ---
+    public static final UUID AUDIO_INPUT_CONTROL_SERVICE_UUID = UUID.fromString("00001843-0000-1000-8000-00805f9b34fb");
+    public static final UUID AUDIO_INPUT_STATE_UUID = UUID.fromString("00002b77-0000-1000-8000-00805f9b34fb");
+    public static final UUID GAIN_SETTING_PROPERTIES_UUID = UUID.fromString("00002b78-0000-1000-8000-00805f9b34fb");
+    public static final UUID AUDIO_INPUT_CONTROL_POINT_UUID = UUID.fromString("00002b7b-0000-1000-8000-00805f9b34fb");
+    public static final UUID AUDIO_INPUT_DESCRIPTION_UUID = UUID.fromString("00002b7c-0000-1000-8000-00805f9b34fb");
+
+    // --- Generic Attribute service ---
+    public static final UUID GENERIC_ATTRIBUTE_SERVICE_UUID = UUID.fromString("00001801-0000-1000-8000-00805f9b34fb");
+    public static final UUID DATABASE_HASH_UUID = UUID.fromString("00002b2a-0000-1000-8000-00805f9b34fb");
+
+    public static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+}
@@ -0,0 +1,7 @@
+package com.example.projet.ble;
+
+/** Parses a characteristic value into a reusable state holder. */
+public interface CharacteristicDecoder {
+    /** @return true when the decoded state differs from the previous one. */
+    boolean decode(byte[] data);
+}
@@ -0,0 +1,19 @@
+package com.example.projet.ble;
+
+/** Where a headset connection stands, as shown to the user. */
+public enum ConnectionPhase {
+    DISCONNECTED,
+    /** First {@code connectGatt} of the session. */
+    CONNECTING,
+    /** Link up, services being discovered and the initial subscribes and reads running. */
+    DISCOVERING,
+    /** Controls hydrated and live. */
+    READY,
+    /** The link dropped and a reconnection is scheduled or pending. */
+    RECONNECTING;
+
+    /** A GATT link is up, whether or not the controls are hydrated yet. */
+    public boolean isConnected() {
+        return this == DISCOVERING || this == READY;
+    }
+}
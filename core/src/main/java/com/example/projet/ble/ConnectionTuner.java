@@ -0,0 +1,133 @@
+package com.example.projet.ble;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Post-connect negotiation: high connection priority for the setup burst, 2M PHY when
+ * supported and a larger MTU. The link drops back to balanced after {@link #IDLE_DELAY_MS}
+ * of idle queue; {@link #onInteraction()} raises it again.
+ *
+ * <p>With debug logging on, logs each write latency with its connection priority. Runs on the
+ * event loop thread, except {@link #onInteraction()}.
+ */
+public final class ConnectionTuner implements GattOperationQueue.Observer {
+
+    private static final Logger LOG = Logger.getLogger("BLE_DEBUG");
+
+    public static final int REQUESTED_MTU = 517;
+    static final long IDLE_DELAY_MS = 5000;
+
+    // --- Android's values: BluetoothGatt.CONNECTION_PRIORITY_*, BluetoothDevice.PHY_LE_* ---
+    public static final int CONNECTION_PRIORITY_BALANCED = 0;
+    public static final int CONNECTION_PRIORITY_HIGH = 1;
+    public static final int PHY_LE_1M = 1;
+    public static final int PHY_LE_2M = 2;
+    public static final int PHY_LE_1M_MASK = 1;
+    public static final int PHY_LE_2M_MASK = 2;
+
+    /** Negotiation outcomes, called on the event loop thread. */
+    public interface Listener {
+        void onMtuNegotiated(boolean success, int mtu);
+        void onPhyNegotiated(boolean success, int txPhy);
+        void onConnectionPriorityChanged(int connectionPriority);
+    }
+
+    private final EventLoop eventLoop;
+    private final GattOperationQueue queue;
+    private final Listener listener;
+    private final boolean le2MPhySupported;
+    private final boolean debugLogging;
+
+    private static final int NO_REQUEST = -1;
+
+    /** Last priority the stack accepted. */
+    private volatile int connectionPriority = CONNECTION_PRIORITY_BALANCED;
+    /** Priority of the request in flight, or {@link #NO_REQUEST}. */
+    private volatile int requestedPriority = NO_REQUEST;
+    private final Runnable relaxRunnable = this::relaxIfIdle;
+
+    public ConnectionTuner(EventLoop eventLoop, GattOperationQueue queue, boolean le2MPhySupported,
+                           boolean debugLogging, Listener listener) {
+        this.eventLoop = eventLoop;
+        this.queue = queue;
+        this.le2MPhySupported = le2MPhySupported;
+        this.debugLogging = debugLogging;
+        this.listener = listener;
+    }
+
+    /** Queues the negotiation right after the link is up, ahead of discovery. */
+    public void onConnected() {
+        connectionPriority = CONNECTION_PRIORITY_BALANCED;
+        requestedPriority = NO_REQUEST;
+        requestConnectionPriority(CONNECTION_PRIORITY_HIGH, GattOperation.Priority.NORMAL);
+        if (le2MPhySupported) {
+            // The outcome comes through onPhyUpdate(), if the PHY changes at all
+            queue.enqueue(GattOperation.setPreferredPhy(PHY_LE_1M_MASK | PHY_LE_2M_MASK))
+                    .whenComplete((result, error) -> {
+                        if (error != null) listener.onPhyNegotiated(false, PHY_LE_1M);
+                    });
+        }
+        queue.enqueue(GattOperation.requestMtu(REQUESTED_MTU))
+                .whenComplete((result, error) -> {
+                    boolean success = error == null && result.isSuccess();
+                    listener.onMtuNegotiated(success, success ? result.getIntValue() : 23);
+                });
+    }
+
+    /** PHY of the link, after our request or one from the peer. */
+    public void onPhyUpdate(int txPhy, int status) {
+        boolean success = status == GattResult.GATT_SUCCESS;
+        listener.onPhyNegotiated(success, success ? txPhy : PHY_LE_1M);
+    }
+
+    public void onDisconnected() {
+        eventLoop.removeCallbacks(relaxRunnable);
+    }
+
+    /** Raises the connection priority before a burst of user-initiated operations. */
+    public void onInteraction() {
+        if (connectionPriority != CONNECTION_PRIORITY_HIGH && requestedPriority != CONNECTION_PRIORITY_HIGH) {
+            requestConnectionPriority(CONNECTION_PRIORITY_HIGH, GattOperation.Priority.HIGH);
+        }
+    }
+
+    @Override
+    public void onOperationFinished(GattOperation operation, long elapsedNanos, boolean success) {
+        if (operation.isWrite() && debugLogging) {
+            LOG.info("Latence écriture " + operation.getCharacteristicUuid() + ": " + (elapsedNanos / 1000) + " µs ("
+                    + (connectionPriority == CONNECTION_PRIORITY_HIGH ? "priorité haute" : "équilibrée")
+                    + (success ? "" : ", échec") + ")");
+        }
+    }
+
+    @Override
+    public void onIdle() {
+        eventLoop.removeCallbacks(relaxRunnable);
+        if (connectionPriority == CONNECTION_PRIORITY_HIGH) {
+            eventLoop.postDelayed(relaxRunnable, IDLE_DELAY_MS);
+        }
+    }
+
+    private void relaxIfIdle() {
+        // Anything enqueued since will call onIdle() again once drained
+        if (queue.isIdle()) {
+            requestConnectionPriority(CONNECTION_PRIORITY_BALANCED, GattOperation.Priority.LOW);
+        }
+    }
+
+    private void requestConnectionPriority(int priority, GattOperation.Priority lane) {
+        requestedPriority = priority;
+        queue.enqueue(GattOperation.requestConnectionPriority(priority).withPriority(lane))
+                .whenComplete((result, error) -> {
+                    if (requestedPriority == priority) requestedPriority = NO_REQUEST;
+                    if (error == null) {
+                        // Only an accepted request changes the link; a refused one is retried on the next interaction
+                        connectionPriority = priority;
+                        listener.onConnectionPriorityChanged(priority);
+                    } else {
+                        LOG.log(Level.SEVERE, "Priorité de connexion refusée: " + priority, error);
+                    }
+                });
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.projet.ble;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Routes characteristic values to the decoder registered for their UUID and notifies a
+ * listener only when the decoded state actually changed. Lookups and dispatch do not allocate.
+ */
+public final class DecoderRegistry {
+
+    private static final class Entry {
+        final CharacteristicDecoder decoder;
+        final Runnable onChanged;
+
+        Entry(CharacteristicDecoder decoder, Runnable onChanged) {
+            this.decoder = decoder;
+            this.onChanged = onChanged;
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    public void register(UUID characteristicUuid, CharacteristicDecoder decoder, Runnable onChanged) {
+        entries.put(characteristicUuid, new Entry(decoder, onChanged));
+    }
+
+    /** @return true when a decoder handled the value and its state changed. */
+    public boolean dispatch(UUID characteristicUuid, byte[] data) {
+        if (data == null) return false;
+        Entry entry = entries.get(characteristicUuid);
+        if (entry == null || !entry.decoder.decode(data)) return false;
+        entry.onChanged.run();
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.projet.ble;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Scan results keyed by device address (O(1) lookups, insertion order kept for display).
+ * RSSI-only changes are throttled so a device that keeps advertising does not rebind its row on
+ * every packet.
+ */
+public final class DeviceIndex {
+
+    /** Smallest RSSI change worth displaying. */
+    static final int RSSI_DELTA_DBM = 5;
+    /** Smallest delay between two displayed RSSI updates of the same device. */
+    static final long RSSI_MIN_INTERVAL_MS = 2000;
+
+    private final Map<String, DiscoveredDevice> devices = new LinkedHashMap<>();
+    private final Map<String, Long> rssiPublishedAt = new LinkedHashMap<>();
+
+    /**
+     * Records an advertisement.
+     *
+     * @return true when the visible list changed and should be resubmitted.
+     */
+    public boolean onAdvertisement(String address, String name, int rssi, long nowMillis, List<UUID> serviceUuids) {
+        DiscoveredDevice previous = devices.get(address);
+        if (previous == null) {
+            devices.put(address, new DiscoveredDevice(address, name, rssi, nowMillis, serviceUuids));
+            rssiPublishedAt.put(address, nowMillis);
+            return true;
+        }
+
+        boolean identityChanged = !previous.getName().equals(name) || !previous.getServiceUuids().equals(serviceUuids);
+        boolean rssiWorthShowing = Math.abs(previous.getRssi() - rssi) >= RSSI_DELTA_DBM
+                && nowMillis - rssiPublishedAt.get(address) >= RSSI_MIN_INTERVAL_MS;
+        if (!identityChanged && !rssiWorthShowing) {
+            devices.put(address, previous.seenAgain(nowMillis));
+            return false;
+        }
+        int displayedRssi = rssiWorthShowing ? rssi : previous.getRssi();
+        if (rssiWorthShowing) rssiPublishedAt.put(address, nowMillis);
+        devices.put(address, new DiscoveredDevice(address, name, displayedRssi, nowMillis, serviceUuids));
+        return true;
+    }
+
+    public DiscoveredDevice get(String address) {
+        return devices.get(address);
+    }
+
+    public int size() {
+        return devices.size();
+    }
+
+    public void clear() {
+        devices.clear();
+        rssiPublishedAt.clear();
+    }
+
+    /** @return a fresh list suitable for {@code ListAdapter.submitList}. */
+    public List<DiscoveredDevice> snapshot() {
+        return new ArrayList<>(devices.values());
+    }
+}
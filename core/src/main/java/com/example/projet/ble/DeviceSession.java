@@ -0,0 +1,587 @@
+package com.example.projet.ble;
+
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_CONTROL_SERVICE_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_DESCRIPTION_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_STATE_UUID;
+import static com.example.projet.ble.BleUuids.CCCD_UUID;
+import static com.example.projet.ble.BleUuids.DATABASE_HASH_UUID;
+import static com.example.projet.ble.BleUuids.GAIN_SETTING_PROPERTIES_UUID;
+import static com.example.projet.ble.BleUuids.GENERIC_ATTRIBUTE_SERVICE_UUID;
+import static com.example.projet.ble.BleUuids.MIC_CONTROL_SERVICE_UUID;
+import static com.example.projet.ble.BleUuids.MIC_MUTE_UUID;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One headset connection: its {@link GattTransport}, operation queue, link tuning, attribute
+ * cache entry and decoded MICS/AICS state. Each AICS instance is one audio input. State is
+ * published as {@link DeviceSnapshot}s through a {@link DeviceStateStore}.
+ *
+ * <p>Runs on the shared event loop thread; public methods may be called from any thread.
+ * Connection steps are logged at {@code INFO} only with debug logging on: Android drops
+ * {@code FINE} records, and release builds should not pay for the messages.
+ */
+public final class DeviceSession {
+
+    private static final Logger LOG = Logger.getLogger("BLE_DEBUG");
+    private static final String CONNECT_TRACE_SECTION = "BLE connexion";
+
+    /** Only waited for on a first connection, when nothing is cached for the device. */
+    private static final long FIRST_DISCOVERY_DELAY_MS = 600;
+
+    /** A characteristic kept live by notifications, subscribed then read during hydration. */
+    private static final class LiveValue {
+        final UUID serviceUuid;
+        final UUID characteristicUuid;
+        final int instance;
+        CompletableFuture<Boolean> subscribed;
+
+        LiveValue(UUID serviceUuid, UUID characteristicUuid, int instance) {
+            this.serviceUuid = serviceUuid;
+            this.characteristicUuid = characteristicUuid;
+            this.instance = instance;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "CCCD " + characteristicUuid + " #" + instance;
+        }
+    }
+
+    /** Session events, called on the event loop thread. */
+    public interface Listener {
+        /** Only called when {@code current} differs from {@code previous}. */
+        void onStateChanged(DeviceSession session, DeviceSnapshot previous, DeviceSnapshot current);
+
+        /**
+         * The device did not take a command the UI already shows: render {@link #getSnapshot()}
+         * again to fall back to the confirmed state.
+         */
+        void onCommandRejected(DeviceSession session);
+    }
+
+    private final GattTransport transport;
+    private final EventLoop eventLoop;
+    private final GattOperationQueue operationQueue;
+    private final ConnectionTuner connectionTuner;
+    private final GattAttributeCache attributeCache;
+    private final Listener listener;
+    private final boolean debugLogging;
+    private final BleMetrics metrics;
+    private final Tracer tracer;
+    /** What the stack delivered on this link, kept across reconnections for field diagnostics. */
+    private final GattRecorder recorder = new GattRecorder();
+    private final DeviceStateStore stateStore = new DeviceStateStore();
+
+    private volatile boolean connected;
+    private volatile boolean closed;
+    private final ReconnectController reconnectController;
+
+    // --- Decoded device state, confined to the event loop thread ---
+    private final HeadsetState headsetState;
+    /** One per audio input, indexed by AICS instance; grows, never shrinks. */
+    private final List<AudioInputController> audioInputControllers = new CopyOnWriteArrayList<>();
+    private GattAttributeCache.Entry connectionAttributes;
+    /** Set by {@link #connect}, cleared once the controls are ready. */
+    private long connectStartNanos;
+    /** Characteristics notified on the current link, per service instance: their initial read is redundant. */
+    private final List<Set<UUID>> notifiedSinceConnect = new ArrayList<>();
+
+    private volatile CompletableFuture<GattResult> latestMuteRequest;
+    /** Read from the layout at hydration: {@link #writeMicMute} runs off the event loop. */
+    private volatile boolean micMuteWriteWithoutResponse;
+
+    // --- Link tuning outcomes ---
+    private volatile int linkMtu = 23;
+    private volatile String linkPhy = "1M";
+    private volatile boolean linkPriorityHigh;
+
+    public DeviceSession(GattTransport transport, EventLoop eventLoop, GattOperationScheduler scheduler,
+                         GattAttributeCache attributeCache, boolean le2MPhySupported, boolean debugLogging,
+                         Listener listener) {
+        this.transport = transport;
+        this.eventLoop = eventLoop;
+        this.attributeCache = attributeCache;
+        this.listener = listener;
+        this.debugLogging = debugLogging;
+        this.metrics = scheduler.getMetrics();
+        this.tracer = scheduler.getTracer();
+        stateStore.addObserver((previous, current) -> listener.onStateChanged(this, previous, current));
+        this.operationQueue = scheduler.openQueue(transport);
+        this.connectionTuner = new ConnectionTuner(eventLoop, operationQueue, le2MPhySupported, debugLogging, new ConnectionTuner.Listener() {
+            @Override
+            public void onMtuNegotiated(boolean success, int mtu) {
+                linkMtu = mtu;
+                publishLink();
+            }
+
+            @Override
+            public void onPhyNegotiated(boolean success, int txPhy) {
+                linkPhy = txPhy == ConnectionTuner.PHY_LE_2M ? "2M" : "1M";
+                publishLink();
+            }
+
+            @Override
+            public void onConnectionPriorityChanged(int connectionPriority) {
+                linkPriorityHigh = connectionPriority == ConnectionTuner.CONNECTION_PRIORITY_HIGH;
+                publishLink();
+            }
+        });
+        operationQueue.setObserver(connectionTuner);
+        reconnectController = new ReconnectController(eventLoop, metrics, new ReconnectController.Connector() {
+            @Override
+            public void connect(boolean autoConnect) {
+                openGatt(autoConnect);
+            }
+
+            @Override
+            public void close() {
+                closeGatt();
+            }
+
+            @Override
+            public void onReconnectScheduled(int attempt, long delayMs, boolean autoConnect) {
+                String progress = autoConnect
+                        ? "En attente du casque (tentative " + attempt + ")"
+                        : "Reconnexion dans " + (delayMs + 999) / 1000 + " s (tentative " + attempt + ")";
+                stateStore.update(s -> s.withPhase(ConnectionPhase.RECONNECTING).withLinkInfo(progress));
+            }
+        });
+        headsetState = new HeadsetState(new HeadsetState.Listener() {
+            @Override
+            public void onMicMuteChanged(MuteState mute) {
+                stateStore.update(s -> s.withMicMute(mute));
+            }
+
+            @Override
+            public void onAudioDescriptionChanged(int input, String description) {
+                stateStore.update(s -> s.withInputDescription(input, description));
+            }
+
+            @Override
+            public void onAudioInputStateChanged(int input, String state) {
+                stateStore.update(s -> s.withInputSummary(input, state));
+            }
+
+            @Override
+            public void onAudioInputControlsChanged(int input, AudioInputControls controls) {
+                stateStore.update(s -> s.withInputControls(input, controls));
+                audioInputControllers.get(input).onStateChanged();
+            }
+        });
+        ensureAudioInputs(1);
+    }
+
+    /** Grows the decoded state, controllers and snapshot to {@code count} audio inputs. Event loop thread. */
+    private void ensureAudioInputs(int count) {
+        headsetState.ensureAudioInputs(count);
+        while (audioInputControllers.size() < headsetState.getAudioInputCount()) {
+            // A dropped target leaves the slider or switch on a value the device never took
+            audioInputControllers.add(new AudioInputController(eventLoop, operationQueue,
+                    headsetState.getAudioInput(audioInputControllers.size()), () -> listener.onCommandRejected(this)));
+        }
+        stateStore.update(s -> s.withInputCount(count));
+    }
+
+    public String getAddress() {
+        return transport.getAddress();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /** Latest published state, from any thread. */
+    public DeviceSnapshot getSnapshot() {
+        return stateStore.getSnapshot();
+    }
+
+    /** A session that is not closed keeps trying to get its link back. */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Copies the notifications and operation results recorded so far, from any thread. */
+    public GattRecording snapshotRecording() {
+        return recorder.snapshot();
+    }
+
+    /** For tests, which drive the queue alongside the session. */
+    GattOperationQueue getOperationQueue() {
+        return operationQueue;
+    }
+
+    /**
+     * Connects now, then keeps reconnecting after dropouts until {@link #close()}; see
+     * {@link ReconnectController}.
+     */
+    public void connect() {
+        eventLoop.post(reconnectController::start);
+    }
+
+    /** Disconnects and releases the GATT client; the session cannot be reused afterwards. */
+    public void close() {
+        closed = true;
+        eventLoop.post(() -> {
+            reconnectController.stop();
+            closeGatt();
+            operationQueue.close();
+        });
+    }
+
+    /** Always on a fresh client: reusing a stale one leaks client interfaces until status 133. */
+    private void openGatt(boolean autoConnect) {
+        connectStartNanos = System.nanoTime();
+        stateStore.update(s -> s.getPhase() == ConnectionPhase.RECONNECTING ? s : s.withPhase(ConnectionPhase.CONNECTING));
+        if (tracer.isEnabled()) tracer.beginAsyncSection(CONNECT_TRACE_SECTION, System.identityHashCode(this));
+        transport.connect(autoConnect, gattCallback);
+    }
+
+    private void closeGatt() {
+        // close() silences the callback, so the link teardown does not come through it
+        if (connected) onLinkDown();
+        abandonConnectMeasure();
+        transport.close();
+    }
+
+    /** Teardown shared by a reported disconnection and closing a connected client. */
+    private void onLinkDown() {
+        connected = false;
+        operationQueue.clear();
+        connectionTuner.onDisconnected();
+        for (AudioInputController controller : audioInputControllers) {
+            controller.reset();
+        }
+        abandonConnectMeasure();
+        storeConnectionAttributes();
+        connectionAttributes = null;
+        stateStore.update(s -> s.withPhase(ConnectionPhase.DISCONNECTED));
+    }
+
+    private void publishLink() {
+        String linkInfo = "MTU " + linkMtu + " · PHY " + linkPhy + " · " + (linkPriorityHigh ? "Priorité haute" : "Équilibrée");
+        stateStore.update(s -> s.withLinkInfo(linkInfo));
+    }
+
+    // --- AICS controls, sent through the Audio Input Control Point of each input ---
+
+    /** Gain slider target; clamped to Gain Setting Properties and sent at the link's pace. */
+    public void setInputGain(int input, int gainSetting) {
+        AudioInputController controller = controllerFor(input);
+        if (controller == null) return;
+        connectionTuner.onInteraction();
+        controller.setGain(gainSetting);
+    }
+
+    public void setInputMuted(int input, boolean muted) {
+        AudioInputController controller = controllerFor(input);
+        if (controller == null) return;
+        connectionTuner.onInteraction();
+        controller.setMuted(muted);
+    }
+
+    public void setInputAutomaticGain(int input, boolean automatic) {
+        AudioInputController controller = controllerFor(input);
+        if (controller == null) return;
+        connectionTuner.onInteraction();
+        controller.setAutomaticGainMode(automatic);
+    }
+
+    @Nullable
+    private AudioInputController controllerFor(int input) {
+        return input >= 0 && input < audioInputControllers.size() ? audioInputControllers.get(input) : null;
+    }
+
+    /**
+     * Optimistic mute write: the UI already shows the requested state, pending writes are
+     * coalesced so only the latest value goes on air, and a failure rolls the UI back to the
+     * last state confirmed by the device, which is what the snapshot holds.
+     */
+    public CompletableFuture<GattResult> writeMicMute(boolean muted) {
+        connectionTuner.onInteraction();
+        byte[] value = new byte[]{(byte) (muted ? 1 : 0)};
+        GattOperation write = micMuteWriteWithoutResponse
+                ? GattOperation.writeNoResponse(MIC_CONTROL_SERVICE_UUID, MIC_MUTE_UUID, value)
+                : GattOperation.write(MIC_CONTROL_SERVICE_UUID, MIC_MUTE_UUID, value);
+        boolean acknowledged = write.getType() == GattOperation.Type.WRITE;
+        CompletableFuture<GattResult> request = operationQueue.enqueue(
+                write.withPriority(GattOperation.Priority.HIGH).coalescing());
+        latestMuteRequest = request;
+        // Superseded requests complete with the result of the write that replaced them
+        request.whenCompleteAsync((result, error) -> {
+            if (latestMuteRequest != request) return;
+            if (error == null && result.isSuccess()) {
+                // A write response confirms the value even when the device does not notify. It goes
+                // through the decoder, which would otherwise drop a later notify of the previous value
+                if (acknowledged) handleCharacteristicValue(0, MIC_MUTE_UUID, value);
+            } else if (!(error instanceof CancellationException)) {
+                LOG.log(Level.SEVERE, "Ecriture du mute échouée, retour à l'état confirmé", error);
+                listener.onCommandRejected(this);
+            }
+        }, eventLoop::post);
+        return request;
+    }
+
+    private final GattTransport.Callback gattCallback = new GattTransport.Callback() {
+        @Override
+        public void onConnected() {
+            if (debugLogging) LOG.info("Connecté au serveur GATT " + getAddress());
+            connected = true;
+            reconnectController.onConnected();
+            operationQueue.clear();
+            connectionTuner.onConnected();
+            for (Set<UUID> notified : notifiedSinceConnect) {
+                notified.clear();
+            }
+            stateStore.update(s -> s.withPhase(ConnectionPhase.DISCOVERING));
+            connectionAttributes = attributeCache.load(getAddress());
+            if (connectionAttributes != null) {
+                // Known headset: show the last known state right away and let the stack
+                // answer discovery from its own cache instead of waiting for the link to settle
+                ensureAudioInputs(connectionAttributes.getInstanceCount());
+                for (int instance = 0; instance < connectionAttributes.getInstanceCount(); instance++) {
+                    for (Map.Entry<UUID, byte[]> value : connectionAttributes.getValues(instance).entrySet()) {
+                        headsetState.onValue(instance, value.getKey(), value.getValue());
+                    }
+                }
+                discoverServices();
+            } else {
+                eventLoop.postDelayed(this::discoverServices, FIRST_DISCOVERY_DELAY_MS);
+            }
+        }
+
+        @Override
+        public void onDisconnected(int status) {
+            if (debugLogging) LOG.info("Déconnecté du serveur GATT " + getAddress() + " statut: " + status);
+            if (connected) onLinkDown();
+            reconnectController.onDisconnected();
+        }
+
+        @Override
+        public void onServicesDiscovered(int status) {
+            operationQueue.onOperationCompleted(GattOperation.Type.DISCOVER_SERVICES, null, status, null, 0);
+            if (status != GattResult.GATT_SUCCESS) return;
+
+            List<String> layout = transport.describeLayout();
+            if (transport.hasCharacteristic(GENERIC_ATTRIBUTE_SERVICE_UUID, DATABASE_HASH_UUID)) {
+                operationQueue.enqueue(GattOperation.read(GENERIC_ATTRIBUTE_SERVICE_UUID, DATABASE_HASH_UUID))
+                        .whenComplete((result, error) -> hydrate(layout,
+                                error == null && result.isSuccess() ? result.getValue() : null));
+            } else {
+                hydrate(layout, null);
+            }
+        }
+
+        @Override
+        public void onServiceChanged() {
+            if (debugLogging) LOG.info("Service Changed, cache invalidé.");
+            attributeCache.invalidate(getAddress());
+            connectionAttributes = null;
+            operationQueue.clear();
+            discoverServices();
+        }
+
+        @Override
+        public void onDescriptorWrite(UUID characteristicUuid, int instance, UUID descriptorUuid, int status) {
+            recorder.record(GattRecording.DESCRIPTOR_WRITE, characteristicUuid, instance, status, null);
+            operationQueue.onOperationCompleted(GattOperation.Type.DESCRIPTOR_WRITE, descriptorUuid, status, null, 0);
+        }
+
+        @Override
+        public void onCharacteristicRead(UUID characteristicUuid, int instance, int status, byte[] value) {
+            recorder.record(GattRecording.READ, characteristicUuid, instance, status, value);
+            if (status == GattResult.GATT_SUCCESS && instance >= 0) {
+                handleCharacteristicValue(instance, characteristicUuid, value);
+            }
+            operationQueue.onOperationCompleted(GattOperation.Type.READ, characteristicUuid, status, value, 0);
+        }
+
+        @Override
+        public void onCharacteristicChanged(UUID characteristicUuid, int instance, byte[] value) {
+            recorder.record(GattRecording.NOTIFICATION, characteristicUuid, instance, 0, value);
+            if (instance < 0) return; // AICS instance not enumerated yet, the initial read covers it
+            while (notifiedSinceConnect.size() <= instance) notifiedSinceConnect.add(new HashSet<>());
+            notifiedSinceConnect.get(instance).add(characteristicUuid);
+            handleCharacteristicValue(instance, characteristicUuid, value);
+        }
+
+        @Override
+        public void onCharacteristicWrite(UUID characteristicUuid, int instance, int status) {
+            recorder.record(GattRecording.WRITE, characteristicUuid, instance, status, null);
+            if (status == GattResult.GATT_SUCCESS) {
+                if (debugLogging) LOG.info("Ecriture OK pour " + characteristicUuid);
+            } else {
+                LOG.severe("Ecriture échouée pour " + characteristicUuid + " statut: " + status);
+            }
+            operationQueue.onOperationCompleted(GattOperation.Type.WRITE, characteristicUuid, status, null, 0);
+        }
+
+        @Override
+        public void onMtuChanged(int mtu, int status) {
+            operationQueue.onOperationCompleted(GattOperation.Type.REQUEST_MTU, null, status, null, mtu);
+        }
+
+        @Override
+        public void onPhyUpdate(int txPhy, int status) {
+            connectionTuner.onPhyUpdate(txPhy, status);
+        }
+
+        private void discoverServices() {
+            operationQueue.enqueue(GattOperation.discoverServices());
+        }
+    };
+
+    /**
+     * Queues the initial subscribes and reads of every MICS/AICS instance as one batch: all
+     * subscribes first, then the static reads, then the reads of subscribed values that no
+     * notification delivered meanwhile. With a valid cache entry the static reads (description,
+     * gain setting properties) are skipped, and so are CCCD writes the bonded server already
+     * remembers. The scheduler interleaves the batch with the other sessions' work.
+     *
+     * <p>A failed step is logged and skipped, so one refused attribute does not keep the
+     * session from READY. Only a dropped link, seen as cancellation, aborts the batch.
+     */
+    private void hydrate(List<String> layout, @Nullable byte[] databaseHash) {
+        GattAttributeCache.Entry cached = connectionAttributes;
+        if (cached != null && !cached.matches(layout, databaseHash)) {
+            if (debugLogging) LOG.info("Cache GATT périmé pour " + getAddress());
+            attributeCache.invalidate(getAddress());
+            cached = null;
+        }
+        GattAttributeCache.Entry entry = cached != null ? cached : new GattAttributeCache.Entry(layout, databaseHash);
+        connectionAttributes = entry;
+        boolean cccdPersisted = cached != null && transport.isBonded();
+
+        int inputs = transport.getServiceCount(AUDIO_INPUT_CONTROL_SERVICE_UUID);
+        ensureAudioInputs(inputs);
+        if (inputs > 1 && debugLogging) LOG.info(inputs + " entrées audio sur " + getAddress());
+
+        micMuteWriteWithoutResponse = transport.supportsWriteWithoutResponse(MIC_CONTROL_SERVICE_UUID, MIC_MUTE_UUID);
+        List<LiveValue> liveValues = new ArrayList<>();
+        if (transport.getServiceCount(MIC_CONTROL_SERVICE_UUID) > 0) {
+            liveValues.add(new LiveValue(MIC_CONTROL_SERVICE_UUID, MIC_MUTE_UUID, 0));
+        }
+        for (int instance = 0; instance < inputs; instance++) {
+            liveValues.add(new LiveValue(AUDIO_INPUT_CONTROL_SERVICE_UUID, AUDIO_INPUT_STATE_UUID, instance));
+        }
+        List<CompletableFuture<?>> steps = new ArrayList<>();
+        for (LiveValue value : liveValues) {
+            value.subscribed = tolerateFailure(subscribe(entry, cccdPersisted, value), value, false);
+            steps.add(value.subscribed);
+        }
+        for (int instance = 0; instance < inputs; instance++) {
+            if (entry.getValue(instance, AUDIO_INPUT_DESCRIPTION_UUID) == null) {
+                steps.add(readTolerant(AUDIO_INPUT_CONTROL_SERVICE_UUID, AUDIO_INPUT_DESCRIPTION_UUID, instance));
+            }
+            if (entry.getValue(instance, GAIN_SETTING_PROPERTIES_UUID) == null) {
+                steps.add(readTolerant(AUDIO_INPUT_CONTROL_SERVICE_UUID, GAIN_SETTING_PROPERTIES_UUID, instance));
+            }
+        }
+        CompletableFuture.allOf(steps.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> readUncovered(liveValues))
+                .whenComplete((ignored, error) -> {
+                    // Cancelled steps mean the link dropped meanwhile
+                    if (error == null && connected) onControlsReady();
+                    storeConnectionAttributes();
+                });
+    }
+
+    /** Initial subscribes and reads are done; closes the connect-to-ready measure, once per connect. */
+    private void onControlsReady() {
+        reconnectController.onReady();
+        stateStore.update(s -> s.withPhase(ConnectionPhase.READY));
+        if (connectStartNanos == 0) return;
+        metrics.recordConnectToReady(System.nanoTime() - connectStartNanos);
+        if (tracer.isEnabled()) tracer.endAsyncSection(CONNECT_TRACE_SECTION, System.identityHashCode(this));
+        connectStartNanos = 0;
+    }
+
+    private void abandonConnectMeasure() {
+        if (connectStartNanos == 0) return;
+        if (tracer.isEnabled()) tracer.endAsyncSection(CONNECT_TRACE_SECTION, System.identityHashCode(this));
+        connectStartNanos = 0;
+    }
+
+    /** @return whether notifications are on; a refused CCCD write leaves the value unread, as before. */
+    private CompletableFuture<Boolean> subscribe(GattAttributeCache.Entry entry, boolean cccdPersisted, LiveValue value) {
+        if (cccdPersisted && entry.isSubscribed(value.instance, value.characteristicUuid)
+                && transport.enableLocalNotifications(value.serviceUuid, value.characteristicUuid, value.instance)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return operationQueue.enqueue(GattOperation.writeDescriptor(value.serviceUuid, value.characteristicUuid, CCCD_UUID, null)
+                        .onInstance(value.instance))
+                .thenApply(result -> {
+                    if (result.isSuccess()) entry.markSubscribed(value.instance, value.characteristicUuid);
+                    return result.isSuccess();
+                });
+    }
+
+    /** Reads the subscribed values no notification delivered since the link came up. */
+    private CompletableFuture<Void> readUncovered(List<LiveValue> liveValues) {
+        List<CompletableFuture<?>> reads = new ArrayList<>();
+        for (LiveValue value : liveValues) {
+            if (!value.subscribed.join()) continue;
+            if (wasNotified(value.instance, value.characteristicUuid)) {
+                if (debugLogging) {
+                    LOG.info("Lecture initiale évitée pour " + value.characteristicUuid + " #" + value.instance);
+                }
+                continue;
+            }
+            reads.add(readTolerant(value.serviceUuid, value.characteristicUuid, value.instance));
+        }
+        return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private CompletableFuture<?> readTolerant(UUID serviceUuid, UUID characteristicUuid, int instance) {
+        return tolerateFailure(operationQueue.enqueue(GattOperation.read(serviceUuid, characteristicUuid).onInstance(instance)),
+                characteristicUuid + " #" + instance, null);
+    }
+
+    /** Completes with {@code fallback} when {@code step} fails; cancellation still propagates. */
+    private <T> CompletableFuture<T> tolerateFailure(CompletableFuture<T> step, Object what, T fallback) {
+        return step.handle((value, error) -> {
+            if (error == null) return value;
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException) throw new CompletionException(cause);
+            LOG.log(Level.WARNING, "Etape d'hydratation ignorée: " + what, cause);
+            return fallback;
+        });
+    }
+
+    private boolean wasNotified(int instance, UUID characteristicUuid) {
+        return instance < notifiedSinceConnect.size() && notifiedSinceConnect.get(instance).contains(characteristicUuid);
+    }
+
+    private void storeConnectionAttributes() {
+        GattAttributeCache.Entry entry = connectionAttributes;
+        if (entry == null) return;
+        try {
+            attributeCache.store(getAddress(), entry);
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Cache GATT non enregistré", e);
+        }
+    }
+
+    private void handleCharacteristicValue(int instance, UUID uuid, byte[] data) {
+        if (headsetState.onValue(instance, uuid, data) && HeadsetState.CACHED_VALUE_UUIDS.contains(uuid)) {
+            GattAttributeCache.Entry entry = connectionAttributes;
+            if (entry != null) entry.putValue(instance, uuid, data);
+        }
+    }
+}
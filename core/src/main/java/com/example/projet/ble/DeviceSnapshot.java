@@ -0,0 +1,158 @@
+package com.example.projet.ble;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable state of one headset as the UI sees it: connection phase, MICS mute, one
+ * {@link Input} per AICS instance, link summary. Compared structurally, so publishing an equal
+ * snapshot is a no-op; the {@code with*} methods return {@code this} when nothing changes.
+ */
+public final class DeviceSnapshot {
+
+    /** One audio input: its controls, rendered state and description. */
+    public static final class Input {
+
+        public static final Input EMPTY = new Input(null, null, null);
+
+        @Nullable private final AudioInputControls controls;
+        @Nullable private final String summary;
+        @Nullable private final String description;
+
+        private Input(@Nullable AudioInputControls controls, @Nullable String summary, @Nullable String description) {
+            this.controls = controls;
+            this.summary = summary;
+            this.description = description;
+        }
+
+        /** Null until the first Audio Input State. */
+        @Nullable public AudioInputControls getControls() { return controls; }
+        /** Rendered Audio Input State, null until known. */
+        @Nullable public String getSummary() { return summary; }
+        @Nullable public String getDescription() { return description; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Input)) return false;
+            Input other = (Input) o;
+            return Objects.equals(controls, other.controls)
+                    && Objects.equals(summary, other.summary)
+                    && Objects.equals(description, other.description);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(controls, summary, description);
+        }
+    }
+
+    public static final DeviceSnapshot EMPTY = new DeviceSnapshot(ConnectionPhase.DISCONNECTED, null,
+            Collections.singletonList(Input.EMPTY), null);
+
+    private final ConnectionPhase phase;
+    @Nullable private final MuteState micMute;
+    private final List<Input> inputs;
+    @Nullable private final String linkInfo;
+
+    private DeviceSnapshot(ConnectionPhase phase, @Nullable MuteState micMute, List<Input> inputs, @Nullable String linkInfo) {
+        this.phase = phase;
+        this.micMute = micMute;
+        this.inputs = inputs;
+        this.linkInfo = linkInfo;
+    }
+
+    public ConnectionPhase getPhase() { return phase; }
+    /** Last value confirmed by the device, null until known. */
+    @Nullable public MuteState getMicMute() { return micMute; }
+    /** MTU, PHY and priority of the link, or reconnection progress. */
+    @Nullable public String getLinkInfo() { return linkInfo; }
+
+    /** At least one: the first input is there before discovery tells how many exist. */
+    public int getInputCount() {
+        return inputs.size();
+    }
+
+    /** @return the input, or {@link Input#EMPTY} beyond {@link #getInputCount()}. */
+    public Input getInput(int index) {
+        return index >= 0 && index < inputs.size() ? inputs.get(index) : Input.EMPTY;
+    }
+
+    public boolean isConnected() {
+        return phase.isConnected();
+    }
+
+    public DeviceSnapshot withPhase(ConnectionPhase phase) {
+        return phase == this.phase ? this : new DeviceSnapshot(phase, micMute, inputs, linkInfo);
+    }
+
+    public DeviceSnapshot withMicMute(@Nullable MuteState micMute) {
+        return micMute == this.micMute ? this : new DeviceSnapshot(phase, micMute, inputs, linkInfo);
+    }
+
+    public DeviceSnapshot withLinkInfo(@Nullable String linkInfo) {
+        return Objects.equals(linkInfo, this.linkInfo) ? this : new DeviceSnapshot(phase, micMute, inputs, linkInfo);
+    }
+
+    public DeviceSnapshot withInputCount(int count) {
+        if (count <= inputs.size()) return this;
+        List<Input> grown = new ArrayList<>(inputs);
+        while (grown.size() < count) grown.add(Input.EMPTY);
+        return new DeviceSnapshot(phase, micMute, Collections.unmodifiableList(grown), linkInfo);
+    }
+
+    public DeviceSnapshot withInputControls(int index, @Nullable AudioInputControls controls) {
+        Input input = getInput(index);
+        return withInput(index, Objects.equals(controls, input.controls) ? input
+                : new Input(controls, input.summary, input.description));
+    }
+
+    public DeviceSnapshot withInputSummary(int index, @Nullable String summary) {
+        Input input = getInput(index);
+        return withInput(index, Objects.equals(summary, input.summary) ? input
+                : new Input(input.controls, summary, input.description));
+    }
+
+    public DeviceSnapshot withInputDescription(int index, @Nullable String description) {
+        Input input = getInput(index);
+        return withInput(index, Objects.equals(description, input.description) ? input
+                : new Input(input.controls, input.summary, description));
+    }
+
+    private DeviceSnapshot withInput(int index, Input input) {
+        if (index < inputs.size() && inputs.get(index) == input) return this;
+        DeviceSnapshot grown = withInputCount(index + 1);
+        List<Input> updated = new ArrayList<>(grown.inputs);
+        updated.set(index, input);
+        return new DeviceSnapshot(phase, micMute, Collections.unmodifiableList(updated), linkInfo);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DeviceSnapshot)) return false;
+        DeviceSnapshot other = (DeviceSnapshot) o;
+        return phase == other.phase
+                && micMute == other.micMute
+                && inputs.equals(other.inputs)
+                && Objects.equals(linkInfo, other.linkInfo);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(phase, micMute, inputs, linkInfo);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("DeviceSnapshot{").append(phase).append(", micMute=").append(micMute);
+        for (int i = 0; i < inputs.size(); i++) {
+            builder.append(", input").append(i).append('=').append(inputs.get(i).summary);
+        }
+        return builder.append(", link=").append(linkInfo).append('}').toString();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.projet.ble;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * Single source of truth for one headset's {@link DeviceSnapshot}. Updates that leave the
+ * snapshot structurally equal are dropped, so observers only ever hear about real changes.
+ *
+ * <p>Updates are confined to the event loop thread, where observers are called;
+ * {@link #getSnapshot()} may be read from any thread.
+ */
+public final class DeviceStateStore {
+
+    public interface Observer {
+        /** {@code current} differs from {@code previous}. */
+        void onSnapshotChanged(DeviceSnapshot previous, DeviceSnapshot current);
+    }
+
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+    private volatile DeviceSnapshot snapshot = DeviceSnapshot.EMPTY;
+
+    public DeviceSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void addObserver(Observer observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /** @return true when the change produced a different snapshot, which was then published. */
+    public boolean update(UnaryOperator<DeviceSnapshot> change) {
+        DeviceSnapshot previous = snapshot;
+        DeviceSnapshot next = change.apply(previous);
+        if (next.equals(previous)) return false;
+        snapshot = next;
+        for (Observer observer : observers) {
+            observer.onSnapshotChanged(previous, next);
+        }
+        return true;
+    }
+}
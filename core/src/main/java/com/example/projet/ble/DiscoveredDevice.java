@@ -0,0 +1,54 @@
+package com.example.projet.ble;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/** Immutable scan record for one advertiser, keyed by its address. */
+public final class DiscoveredDevice {
+
+    private final String address;
+    private final String name;
+    private final int rssi;
+    private final long lastSeenMillis;
+    private final List<UUID> serviceUuids;
+
+    public DiscoveredDevice(String address, String name, int rssi, long lastSeenMillis, List<UUID> serviceUuids) {
+        this.address = address;
+        this.name = name;
+        this.rssi = rssi;
+        this.lastSeenMillis = lastSeenMillis;
+        this.serviceUuids = Collections.unmodifiableList(serviceUuids);
+    }
+
+    public String getAddress() { return address; }
+    public String getName() { return name; }
+    public int getRssi() { return rssi; }
+    public long getLastSeenMillis() { return lastSeenMillis; }
+    public List<UUID> getServiceUuids() { return serviceUuids; }
+
+    DiscoveredDevice seenAgain(long nowMillis) {
+        return new DiscoveredDevice(address, name, rssi, nowMillis, serviceUuids);
+    }
+
+    /** Compares what the device list displays; the last-seen timestamp is not shown. */
+    public boolean sameContentAs(DiscoveredDevice other) {
+        return rssi == other.rssi
+                && name.equals(other.name)
+                && serviceUuids.equals(other.serviceUuids);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DiscoveredDevice)) return false;
+        DiscoveredDevice other = (DiscoveredDevice) o;
+        return lastSeenMillis == other.lastSeenMillis && address.equals(other.address) && sameContentAs(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(address, name, rssi, lastSeenMillis, serviceUuids);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.projet.ble;
+
+/**
+ * Single thread the GATT state is confined to. On Android this is the BLE worker
+ * {@code Handler}; on the JVM, tests and benchmarks drive it by hand.
+ */
+public interface EventLoop {
+
+    void post(Runnable task);
+
+    void postDelayed(Runnable task, long delayMs);
+
+    void removeCallbacks(Runnable task);
+}
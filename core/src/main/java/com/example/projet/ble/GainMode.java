@@ -0,0 +1,25 @@
+package com.example.projet.ble;
+
+/** AICS Gain Mode field. */
+public enum GainMode {
+    MANUAL_ONLY,
+    AUTOMATIC_ONLY,
+    MANUAL,
+    AUTOMATIC;
+
+    private static final GainMode[] VALUES = values();
+
+    /** @return the decoded mode, or null for a reserved value. */
+    static GainMode fromValue(int value) {
+        return value >= 0 && value < VALUES.length ? VALUES[value] : null;
+    }
+
+    public boolean isAutomatic() {
+        return this == AUTOMATIC_ONLY || this == AUTOMATIC;
+    }
+
+    /** The client may switch between manual and automatic; the *_ONLY modes are fixed. */
+    public boolean isChangeable() {
+        return this == MANUAL || this == AUTOMATIC;
+    }
+}
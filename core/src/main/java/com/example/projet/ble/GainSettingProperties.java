@@ -0,0 +1,43 @@
+package com.example.projet.ble;
+
+/**
+ * AICS Gain Setting Properties characteristic (0x2B78): gain step in 0.1 dB (uint8), then the
+ * minimum and maximum gain setting (sint8). Static for a given input, so it is read once and
+ * kept in the attribute cache.
+ */
+public final class GainSettingProperties implements CharacteristicDecoder {
+
+    private static final int LENGTH = 3;
+
+    private int units;
+    private int minimum = Byte.MIN_VALUE;
+    private int maximum = Byte.MAX_VALUE;
+    private boolean known;
+
+    @Override
+    public boolean decode(byte[] data) {
+        if (data.length < LENGTH) return false;
+        int newUnits = data[0] & 0xFF;
+        int newMinimum = data[1];
+        int newMaximum = data[2];
+        if (newMinimum > newMaximum) return false;
+        if (known && newUnits == units && newMinimum == minimum && newMaximum == maximum) return false;
+        units = newUnits;
+        minimum = newMinimum;
+        maximum = newMaximum;
+        known = true;
+        return true;
+    }
+
+    /** @return false until the characteristic was read; the range is then the whole sint8. */
+    public boolean isKnown() { return known; }
+
+    /** Gain step in 0.1 dB. */
+    public int getUnits() { return units; }
+    public int getMinimum() { return minimum; }
+    public int getMaximum() { return maximum; }
+
+    public int clamp(int gainSetting) {
+        return Math.max(minimum, Math.min(maximum, gainSetting));
+    }
+}
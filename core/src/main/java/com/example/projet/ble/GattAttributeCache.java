@@ -0,0 +1,213 @@
+package com.example.projet.ble;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Small on-disk cache of what we learned about a device on its last connection: the GATT
+ * layout, the CCCDs we enabled and slow-changing values (input description...). One file per
+ * device address. An entry is only trusted when the freshly discovered layout and, if the
+ * device exposes one, the GATT Database Hash still match. Subscriptions and values are kept
+ * per service instance, so each AICS of a multi-input headset has its own.
+ */
+public final class GattAttributeCache {
+
+    private static final int FORMAT_VERSION = 2;
+
+    /** Cached attributes of one device. Not thread-safe, owned by the BLE worker thread. */
+    public static final class Entry {
+        private final List<String> layout;
+        private final byte[] databaseHash;
+        /** Indexed by service instance. */
+        private final List<Set<UUID>> subscribed = new ArrayList<>();
+        private final List<Map<UUID, byte[]>> values = new ArrayList<>();
+
+        public Entry(List<String> layout, byte[] databaseHash) {
+            this.layout = Collections.unmodifiableList(new ArrayList<>(layout));
+            this.databaseHash = databaseHash;
+        }
+
+        /** Sorted "service/characteristic/properties" lines, see {@link #layoutLine}. */
+        public List<String> getLayout() { return layout; }
+
+        /** GATT Database Hash read on the connection that produced this entry, null if none. */
+        public byte[] getDatabaseHash() { return databaseHash; }
+
+        public boolean isSubscribed(UUID characteristicUuid) {
+            return isSubscribed(0, characteristicUuid);
+        }
+
+        public boolean isSubscribed(int instance, UUID characteristicUuid) {
+            return instance < subscribed.size() && subscribed.get(instance).contains(characteristicUuid);
+        }
+
+        public void markSubscribed(UUID characteristicUuid) {
+            markSubscribed(0, characteristicUuid);
+        }
+
+        public void markSubscribed(int instance, UUID characteristicUuid) {
+            grow(subscribed, instance, HashSet::new).add(characteristicUuid);
+        }
+
+        public byte[] getValue(UUID characteristicUuid) {
+            return getValue(0, characteristicUuid);
+        }
+
+        public byte[] getValue(int instance, UUID characteristicUuid) {
+            return instance < values.size() ? values.get(instance).get(characteristicUuid) : null;
+        }
+
+        /** Number of service instances holding values; {@link #getValues} is empty beyond it. */
+        public int getInstanceCount() {
+            return values.size();
+        }
+
+        public Map<UUID, byte[]> getValues(int instance) {
+            return instance < values.size() ? Collections.unmodifiableMap(values.get(instance)) : Collections.emptyMap();
+        }
+
+        public void putValue(UUID characteristicUuid, byte[] value) {
+            putValue(0, characteristicUuid, value);
+        }
+
+        public void putValue(int instance, UUID characteristicUuid, byte[] value) {
+            grow(values, instance, LinkedHashMap::new).put(characteristicUuid, value.clone());
+        }
+
+        private static <T> T grow(List<T> perInstance, int instance, Supplier<T> factory) {
+            while (perInstance.size() <= instance) perInstance.add(factory.get());
+            return perInstance.get(instance);
+        }
+
+        /** True when this entry describes the same attribute database as the connected one. */
+        public boolean matches(List<String> discoveredLayout, byte[] discoveredHash) {
+            if (!layout.equals(discoveredLayout)) return false;
+            return databaseHash == null || discoveredHash == null || Arrays.equals(databaseHash, discoveredHash);
+        }
+    }
+
+    public static String layoutLine(UUID serviceUuid, UUID characteristicUuid, int properties) {
+        return serviceUuid + "/" + characteristicUuid + "/" + properties;
+    }
+
+    private final File directory;
+
+    public GattAttributeCache(File directory) {
+        this.directory = directory;
+    }
+
+    /** @return the cached entry, or null when missing or unreadable. */
+    public Entry load(String address) {
+        File file = fileFor(address);
+        if (!file.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) return null;
+            int layoutSize = in.readInt();
+            List<String> layout = new ArrayList<>(layoutSize);
+            for (int i = 0; i < layoutSize; i++) layout.add(in.readUTF());
+            byte[] hash = readBytes(in);
+            Entry entry = new Entry(layout, hash);
+            int subscribedSize = in.readInt();
+            for (int i = 0; i < subscribedSize; i++) entry.markSubscribed(in.readInt(), readUuid(in));
+            int valueCount = in.readInt();
+            for (int i = 0; i < valueCount; i++) {
+                int instance = in.readInt();
+                UUID uuid = readUuid(in);
+                byte[] value = readBytes(in);
+                if (value != null) entry.putValue(instance, uuid, value);
+            }
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            // A corrupted entry is only a missed shortcut: drop it and rediscover
+            invalidate(address);
+            return null;
+        }
+    }
+
+    public void store(String address, Entry entry) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File target = fileFor(address);
+        File tmp = new File(directory, target.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(entry.layout.size());
+            for (String line : entry.layout) out.writeUTF(line);
+            writeBytes(out, entry.databaseHash);
+            int subscribedSize = 0;
+            for (Set<UUID> uuids : entry.subscribed) subscribedSize += uuids.size();
+            out.writeInt(subscribedSize);
+            for (int instance = 0; instance < entry.subscribed.size(); instance++) {
+                for (UUID uuid : entry.subscribed.get(instance)) {
+                    out.writeInt(instance);
+                    writeUuid(out, uuid);
+                }
+            }
+            int valueCount = 0;
+            for (Map<UUID, byte[]> instanceValues : entry.values) valueCount += instanceValues.size();
+            out.writeInt(valueCount);
+            for (int instance = 0; instance < entry.values.size(); instance++) {
+                for (Map.Entry<UUID, byte[]> value : entry.values.get(instance).entrySet()) {
+                    out.writeInt(instance);
+                    writeUuid(out, value.getKey());
+                    writeBytes(out, value.getValue());
+                }
+            }
+        }
+        if (!tmp.renameTo(target)) {
+            throw new IOException("Cannot replace " + target);
+        }
+    }
+
+    public void invalidate(String address) {
+        //noinspection ResultOfMethodCallIgnored
+        fileFor(address).delete();
+    }
+
+    private File fileFor(String address) {
+        return new File(directory, address.replace(":", "") + ".bin");
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
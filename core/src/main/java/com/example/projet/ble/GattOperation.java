@@ -0,0 +1,181 @@
+package com.example.projet.ble;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A single GATT request waiting in (or running through) the {@link GattOperationScheduler}.
+ * Instances are created through the static factories and may be tuned with
+ * {@link #withPriority(Priority)} / {@link #withTimeout(long)} before being enqueued. A service
+ * exposed several times (one AICS per audio input) is addressed with {@link #onInstance(int)}.
+ */
+public final class GattOperation {
+
+    public enum Type {
+        READ,
+        WRITE,
+        WRITE_NO_RESPONSE,
+        DESCRIPTOR_WRITE,
+        REQUEST_MTU,
+        CONNECTION_PRIORITY,
+        SET_PREFERRED_PHY,
+        DISCOVER_SERVICES;
+
+        /** Precomputed so tracing does not build strings on the hot path. */
+        final String traceSection = "GATT " + name();
+
+        /**
+         * Operations the stack acknowledges synchronously. A PHY request has a callback, but
+         * it may never come when the PHY stays the same, so the queue does not wait for it.
+         */
+        boolean completesOnStart() {
+            return this == CONNECTION_PRIORITY || this == SET_PREFERRED_PHY;
+        }
+    }
+
+    /** Scheduling lanes, drained strictly in declaration order. */
+    public enum Priority {
+        /** Direct user actions (mute toggle...), they jump ahead of everything else. */
+        HIGH,
+        /** Connection setup: subscribes and initial reads. */
+        NORMAL,
+        /** Housekeeping that can wait. */
+        LOW
+    }
+
+    static final long DEFAULT_TIMEOUT_MS = 3000;
+    /** Discovery of a first-time device can take several seconds on a busy link. */
+    static final long DISCOVERY_TIMEOUT_MS = 15000;
+
+    final Type type;
+    @Nullable final UUID serviceUuid;
+    @Nullable final UUID characteristicUuid;
+    @Nullable final UUID descriptorUuid;
+    @Nullable final byte[] value;
+    final int intArg;
+    int serviceInstance;
+    Priority priority = Priority.NORMAL;
+    long timeoutMs = DEFAULT_TIMEOUT_MS;
+    boolean coalescing;
+    /** Set when handed to {@link GattOperationQueue#enqueue}, for the queue wait metric. */
+    long enqueuedNanos;
+
+    final CompletableFuture<GattResult> future = new CompletableFuture<>();
+
+    private GattOperation(Type type, @Nullable UUID serviceUuid, @Nullable UUID characteristicUuid,
+                          @Nullable UUID descriptorUuid, @Nullable byte[] value, int intArg) {
+        this.type = type;
+        this.serviceUuid = serviceUuid;
+        this.characteristicUuid = characteristicUuid;
+        this.descriptorUuid = descriptorUuid;
+        this.value = value;
+        this.intArg = intArg;
+    }
+
+    public static GattOperation read(UUID serviceUuid, UUID characteristicUuid) {
+        return new GattOperation(Type.READ, serviceUuid, characteristicUuid, null, null, 0);
+    }
+
+    public static GattOperation write(UUID serviceUuid, UUID characteristicUuid, byte[] value) {
+        return new GattOperation(Type.WRITE, serviceUuid, characteristicUuid, null, value, 0);
+    }
+
+    public static GattOperation writeNoResponse(UUID serviceUuid, UUID characteristicUuid, byte[] value) {
+        return new GattOperation(Type.WRITE_NO_RESPONSE, serviceUuid, characteristicUuid, null, value, 0);
+    }
+
+    /**
+     * Writes a descriptor. When {@code value} is null and the descriptor is the CCCD, the runner
+     * picks notification or indication from the characteristic properties.
+     */
+    public static GattOperation writeDescriptor(UUID serviceUuid, UUID characteristicUuid,
+                                                UUID descriptorUuid, @Nullable byte[] value) {
+        return new GattOperation(Type.DESCRIPTOR_WRITE, serviceUuid, characteristicUuid, descriptorUuid, value, 0);
+    }
+
+    public static GattOperation requestMtu(int mtu) {
+        return new GattOperation(Type.REQUEST_MTU, null, null, null, null, mtu);
+    }
+
+    public static GattOperation requestConnectionPriority(int connectionPriority) {
+        return new GattOperation(Type.CONNECTION_PRIORITY, null, null, null, null, connectionPriority);
+    }
+
+    /**
+     * Preferred LE PHY (tx and rx), as a {@code BluetoothDevice.PHY_LE_*_MASK} combination. The
+     * outcome is reported through {@link GattTransport.Callback#onPhyUpdate}, not the result.
+     */
+    public static GattOperation setPreferredPhy(int phyMask) {
+        return new GattOperation(Type.SET_PREFERRED_PHY, null, null, null, null, phyMask);
+    }
+
+    public static GattOperation discoverServices() {
+        return new GattOperation(Type.DISCOVER_SERVICES, null, null, null, null, 0)
+                .withTimeout(DISCOVERY_TIMEOUT_MS);
+    }
+
+    public GattOperation withPriority(@NonNull Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /** Targets the {@code instance}-th service of that UUID, in handle order; 0 by default. */
+    public GattOperation onInstance(int instance) {
+        this.serviceInstance = instance;
+        return this;
+    }
+
+    public GattOperation withTimeout(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        return this;
+    }
+
+    /**
+     * Last-writer-wins: a pending (not yet started) write to the same characteristic is dropped
+     * in favour of this one, and its future completes with this operation's result.
+     */
+    public GattOperation coalescing() {
+        this.coalescing = true;
+        return this;
+    }
+
+    public Type getType() { return type; }
+    @Nullable public UUID getServiceUuid() { return serviceUuid; }
+    public int getServiceInstance() { return serviceInstance; }
+    @Nullable public UUID getCharacteristicUuid() { return characteristicUuid; }
+    @Nullable public UUID getDescriptorUuid() { return descriptorUuid; }
+    @Nullable public byte[] getValue() { return value; }
+    public int getIntArg() { return intArg; }
+    public Priority getPriority() { return priority; }
+    public boolean isWrite() { return type == Type.WRITE || type == Type.WRITE_NO_RESPONSE; }
+
+    public CompletableFuture<GattResult> getFuture() { return future; }
+
+    /** True when {@code other} is a coalescing write to the same characteristic as this one. */
+    boolean supersedes(GattOperation other) {
+        return coalescing && other.coalescing
+                && isWrite() && other.isWrite()
+                && Objects.equals(serviceUuid, other.serviceUuid)
+                && serviceInstance == other.serviceInstance
+                && Objects.equals(characteristicUuid, other.characteristicUuid);
+    }
+
+    /** True when a callback of the given type/target belongs to this operation. */
+    boolean matches(Type callbackType, @Nullable UUID callbackUuid) {
+        Type expected = type == Type.WRITE_NO_RESPONSE ? Type.WRITE : type;
+        if (expected != callbackType) return false;
+        UUID target = type == Type.DESCRIPTOR_WRITE ? descriptorUuid : characteristicUuid;
+        return target == null || callbackUuid == null || target.equals(callbackUuid);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return type + "(" + (characteristicUuid != null ? characteristicUuid : intArg)
+                + (serviceInstance != 0 ? " #" + serviceInstance : "") + ")";
+    }
+}
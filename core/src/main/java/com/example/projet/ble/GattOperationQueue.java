@@ -0,0 +1,234 @@
+package com.example.projet.ble;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Operation queue of one connection: Android only allows a single outstanding request per
+ * {@code BluetoothGatt}. When an operation may start is decided by the shared
+ * {@link GattOperationScheduler}, which also caps the requests in flight across connections.
+ *
+ * <p>All state is confined to the event loop thread; {@link #enqueue}, {@link #onOperationCompleted}
+ * and {@link #clear} may be called from any thread. Each operation carries a deadline, so a
+ * callback dropped by the stack fails that operation instead of stalling the queue forever.
+ * Writes flagged {@link GattOperation#coalescing()} replace any pending write to the same
+ * characteristic, so only the latest value goes on air.
+ */
+public final class GattOperationQueue {
+
+    private static final Logger LOG = Logger.getLogger("BLE_DEBUG");
+
+    /** Starts an operation against the GATT stack. */
+    public interface OperationRunner {
+        /** @return false when the stack refused to start the request. */
+        boolean start(GattOperation operation);
+    }
+
+    /** Hooks for instrumentation and link tuning, called on the event loop thread. */
+    public interface Observer {
+        /** @param elapsedNanos time from start to completion, timeouts included. */
+        void onOperationFinished(GattOperation operation, long elapsedNanos, boolean success);
+
+        /** The queue just drained: nothing in flight, nothing pending. */
+        void onIdle();
+    }
+
+    /** Raised through the operation future when the request could not be started. */
+    public static final class OperationFailedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public OperationFailedException(String message) {
+            super(message);
+        }
+    }
+
+    private final GattOperationScheduler scheduler;
+    private final EventLoop eventLoop;
+    private final OperationRunner runner;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<GattOperation>[] lanes = new ArrayDeque[GattOperation.Priority.values().length];
+
+    @Nullable private GattOperation inFlight;
+    private long inFlightStartNanos;
+    private int inFlightTraceCookie;
+    @Nullable private Observer observer;
+    private final Runnable timeoutRunnable = this::onTimeout;
+
+    GattOperationQueue(GattOperationScheduler scheduler, EventLoop eventLoop, OperationRunner runner) {
+        this.scheduler = scheduler;
+        this.eventLoop = eventLoop;
+        this.runner = runner;
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+    }
+
+    /** Must be set before the first operation is enqueued. */
+    public void setObserver(@Nullable Observer observer) {
+        this.observer = observer;
+    }
+
+    /** Only meaningful on the event loop thread. */
+    public boolean isIdle() {
+        return inFlight == null && peekLane() < 0;
+    }
+
+    public CompletableFuture<GattResult> enqueue(GattOperation operation) {
+        operation.enqueuedNanos = System.nanoTime();
+        eventLoop.post(() -> {
+            if (operation.coalescing) dropSuperseded(operation);
+            lanes[operation.priority.ordinal()].addLast(operation);
+            scheduler.dispatch();
+        });
+        return operation.future;
+    }
+
+    private void dropSuperseded(GattOperation operation) {
+        for (ArrayDeque<GattOperation> lane : lanes) {
+            Iterator<GattOperation> it = lane.iterator();
+            while (it.hasNext()) {
+                GattOperation pending = it.next();
+                if (operation.supersedes(pending)) {
+                    it.remove();
+                    operation.future.whenComplete((result, error) -> {
+                        if (error != null) pending.future.completeExceptionally(error);
+                        else pending.future.complete(result);
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports a GATT callback. Callbacks that do not belong to the in-flight operation (late
+     * answers to an operation that already timed out) are dropped.
+     */
+    public void onOperationCompleted(GattOperation.Type type, @Nullable UUID uuid, int status,
+                                     @Nullable byte[] value, int intValue) {
+        eventLoop.post(() -> {
+            GattOperation operation = inFlight;
+            if (operation == null || !operation.matches(type, uuid)) {
+                LOG.warning("Callback sans opération en cours: " + type + " " + uuid);
+                return;
+            }
+            finish(operation, new GattResult(status, value != null ? value : operation.value, intValue));
+        });
+    }
+
+    /** Fails the in-flight and every pending operation, e.g. after a disconnection. */
+    public void clear() {
+        eventLoop.post(() -> {
+            eventLoop.removeCallbacks(timeoutRunnable);
+            GattOperation operation = inFlight;
+            if (operation != null) {
+                inFlight = null;
+                if (scheduler.tracer.isEnabled()) scheduler.tracer.endAsyncSection(operation.type.traceSection, inFlightTraceCookie);
+                operation.future.cancel(false);
+                scheduler.release();
+            }
+            for (ArrayDeque<GattOperation> lane : lanes) {
+                for (GattOperation pending : lane) {
+                    pending.future.cancel(false);
+                }
+                lane.clear();
+            }
+        });
+    }
+
+    /** Cancels everything and detaches the queue from the scheduler. */
+    public void close() {
+        clear();
+        eventLoop.post(() -> scheduler.remove(this));
+    }
+
+    // --- Called by the scheduler, on the event loop thread ---
+
+    boolean hasInFlight() {
+        return inFlight != null;
+    }
+
+    /** @return the most urgent non-empty lane index, or -1. */
+    int peekLane() {
+        for (int i = 0; i < lanes.length; i++) {
+            if (!lanes[i].isEmpty()) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Starts the head of the given lane.
+     *
+     * @return true when an operation is now in flight and holds a scheduler slot.
+     */
+    boolean startNext(int lane) {
+        GattOperation next = lanes[lane].pollFirst();
+        if (next == null || next.future.isDone()) return false;
+
+        inFlight = next;
+        inFlightStartNanos = System.nanoTime();
+        scheduler.metrics.recordQueueWait(next.type, inFlightStartNanos - next.enqueuedNanos);
+        if (scheduler.tracer.isEnabled()) {
+            inFlightTraceCookie = scheduler.nextTraceCookie();
+            scheduler.tracer.beginAsyncSection(next.type.traceSection, inFlightTraceCookie);
+        }
+        boolean started;
+        try {
+            started = runner.start(next);
+        } catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, "Démarrage impossible: " + next, e);
+            started = false;
+        }
+        if (!started) {
+            inFlight = null;
+            notifyFinished(next, false);
+            next.future.completeExceptionally(new OperationFailedException("start failed: " + next));
+            return false;
+        }
+        if (next.type.completesOnStart()) {
+            inFlight = null;
+            notifyFinished(next, true);
+            next.future.complete(new GattResult(GattResult.GATT_SUCCESS, null, next.intArg));
+            return false;
+        }
+        eventLoop.postDelayed(timeoutRunnable, next.timeoutMs);
+        return true;
+    }
+
+    void notifyIfIdle() {
+        if (observer != null && isIdle()) observer.onIdle();
+    }
+
+    private void finish(GattOperation operation, GattResult result) {
+        eventLoop.removeCallbacks(timeoutRunnable);
+        inFlight = null;
+        notifyFinished(operation, result.isSuccess());
+        operation.future.complete(result);
+        scheduler.release();
+        notifyIfIdle();
+    }
+
+    private void notifyFinished(GattOperation operation, boolean success) {
+        long elapsedNanos = System.nanoTime() - inFlightStartNanos;
+        scheduler.metrics.recordRoundTrip(operation.type, elapsedNanos);
+        if (scheduler.tracer.isEnabled()) scheduler.tracer.endAsyncSection(operation.type.traceSection, inFlightTraceCookie);
+        if (observer != null) observer.onOperationFinished(operation, elapsedNanos, success);
+    }
+
+    private void onTimeout() {
+        GattOperation operation = inFlight;
+        if (operation == null) return;
+        LOG.severe("Délai dépassé pour " + operation);
+        inFlight = null;
+        notifyFinished(operation, false);
+        operation.future.completeExceptionally(new TimeoutException(operation + " timed out after " + operation.timeoutMs + " ms"));
+        scheduler.release();
+        notifyIfIdle();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.projet.ble;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shares the controller between several connections. Each connection owns a
+ * {@link GattOperationQueue} (one request in flight per {@code BluetoothGatt}); the scheduler
+ * starts queued operations while fewer than {@code maxInFlight} are outstanding overall, most
+ * urgent lane first and round-robin between connections inside a lane, so a user write on any
+ * device jumps ahead and no device starves another.
+ *
+ * <p>Confined to the event loop thread, like the queues it drives.
+ */
+public final class GattOperationScheduler {
+
+    /** Outstanding ATT requests we allow across all links. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private final EventLoop eventLoop;
+    private final int maxInFlight;
+    final BleMetrics metrics;
+    final Tracer tracer;
+    private final List<GattOperationQueue> queues = new ArrayList<>();
+    private int inFlightCount;
+    private int cursor;
+    private int traceCookie;
+
+    public GattOperationScheduler(EventLoop eventLoop, int maxInFlight) {
+        this(eventLoop, maxInFlight, new BleMetrics(), Tracer.NONE);
+    }
+
+    /** Queue wait and round trip of every operation are recorded into {@code metrics}. */
+    public GattOperationScheduler(EventLoop eventLoop, int maxInFlight, BleMetrics metrics, Tracer tracer) {
+        this.eventLoop = eventLoop;
+        this.maxInFlight = maxInFlight;
+        this.metrics = metrics;
+        this.tracer = tracer;
+    }
+
+    public BleMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /** Opens the queue of a new connection. */
+    public GattOperationQueue openQueue(GattOperationQueue.OperationRunner runner) {
+        GattOperationQueue queue = new GattOperationQueue(this, eventLoop, runner);
+        eventLoop.post(() -> queues.add(queue));
+        return queue;
+    }
+
+    void remove(GattOperationQueue queue) {
+        queues.remove(queue);
+    }
+
+    /** Async trace sections of concurrent operations need distinct cookies. */
+    int nextTraceCookie() {
+        return ++traceCookie;
+    }
+
+    /** An in-flight operation completed, failed or timed out. */
+    void release() {
+        inFlightCount--;
+        dispatch();
+    }
+
+    void dispatch() {
+        while (inFlightCount < maxInFlight) {
+            int lane = mostUrgentLane();
+            if (lane < 0) return;
+            int size = queues.size();
+            for (int i = 0; i < size; i++) {
+                int index = (cursor + i) % size;
+                GattOperationQueue queue = queues.get(index);
+                if (queue.hasInFlight() || queue.peekLane() != lane) continue;
+                cursor = (index + 1) % size;
+                if (queue.startNext(lane)) {
+                    inFlightCount++;
+                } else {
+                    queue.notifyIfIdle();
+                }
+                break;
+            }
+        }
+    }
+
+    /** @return the most urgent lane holding work on a queue that can start it, or -1. */
+    private int mostUrgentLane() {
+        int lane = -1;
+        for (GattOperationQueue queue : queues) {
+            if (queue.hasInFlight()) continue;
+            int queueLane = queue.peekLane();
+            if (queueLane >= 0 && (lane < 0 || queueLane < lane)) lane = queueLane;
+        }
+        return lane;
+    }
+}
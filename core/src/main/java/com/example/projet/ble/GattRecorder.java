@@ -0,0 +1,125 @@
+package com.example.projet.ble;
+
+import androidx.annotation.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Always-on flight recorder of what the GATT stack delivered: notifications and operation
+ * results, each with a monotonic timestamp, characteristic, service instance, status and payload. Records live in
+ * preallocated primitive arrays and payloads in a circular byte arena, so recording never
+ * allocates; once either is full the oldest records are overwritten.
+ *
+ * <p>{@link #snapshot()} copies the current contents into a {@link GattRecording} that can be
+ * written to disk and replayed with {@link GattReplayer}.
+ */
+public final class GattRecorder {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_ARENA_BYTES = 64 * 1024;
+    /** ATT attribute values are at most 512 bytes. */
+    static final int MAX_PAYLOAD = 512;
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final byte[] kinds;
+    private final byte[] instances;
+    private final long[] uuidMsb;
+    private final long[] uuidLsb;
+    private final int[] statuses;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final byte[] arena;
+
+    // Guarded by this
+    private int first;
+    private int size;
+    private int arenaHead;
+    private long overwritten;
+
+    public GattRecorder() {
+        this(DEFAULT_CAPACITY, DEFAULT_ARENA_BYTES);
+    }
+
+    public GattRecorder(int capacity, int arenaBytes) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity: " + capacity);
+        if (arenaBytes < MAX_PAYLOAD) throw new IllegalArgumentException("arena smaller than one payload: " + arenaBytes);
+        this.capacity = capacity;
+        timestamps = new long[capacity];
+        kinds = new byte[capacity];
+        instances = new byte[capacity];
+        uuidMsb = new long[capacity];
+        uuidLsb = new long[capacity];
+        statuses = new int[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        arena = new byte[arenaBytes];
+    }
+
+    /**
+     * @param kind one of the {@link GattRecording} kinds
+     * @param instance rank of the service instance, -1 when discovery had not found it
+     * @param payload copied; truncated to {@value #MAX_PAYLOAD} bytes
+     */
+    public void record(byte kind, UUID characteristicUuid, int instance, int status, @Nullable byte[] payload) {
+        record(System.nanoTime(), kind, characteristicUuid, instance, status, payload);
+    }
+
+    synchronized void record(long timestampNanos, byte kind, UUID characteristicUuid, int instance, int status,
+                             @Nullable byte[] payload) {
+        if (instance < -1 || instance > Byte.MAX_VALUE) throw new IllegalArgumentException("instance: " + instance);
+        int length = payload == null ? 0 : Math.min(payload.length, MAX_PAYLOAD);
+        int offset = arenaHead;
+        boolean wrapped = offset + length > arena.length;
+        if (wrapped) offset = 0;
+        // Live payloads follow each other from the oldest one up to arenaHead, so the space
+        // ahead of the head is reclaimed by evicting from the oldest end
+        while (size > 0 && (size == capacity
+                || oldestIntersects(offset, offset + length)
+                || (wrapped && oldestIntersects(arenaHead, arena.length)))) {
+            first = (first + 1) % capacity;
+            size--;
+            overwritten++;
+        }
+        int index = (first + size) % capacity;
+        timestamps[index] = timestampNanos;
+        kinds[index] = kind;
+        instances[index] = (byte) instance;
+        uuidMsb[index] = characteristicUuid.getMostSignificantBits();
+        uuidLsb[index] = characteristicUuid.getLeastSignificantBits();
+        statuses[index] = status;
+        offsets[index] = offset;
+        lengths[index] = length;
+        if (length > 0) System.arraycopy(payload, 0, arena, offset, length);
+        arenaHead = offset + length;
+        size++;
+    }
+
+    /** Empty payloads count as one byte wide, so they are evicted with their neighbours. */
+    private boolean oldestIntersects(int start, int end) {
+        int offset = offsets[first];
+        return offset < end && start < offset + Math.max(lengths[first], 1);
+    }
+
+    /** @return records lost to the ring wrapping since creation. */
+    public synchronized long getOverwrittenCount() {
+        return overwritten;
+    }
+
+    public synchronized void clear() {
+        first = 0;
+        size = 0;
+        arenaHead = 0;
+    }
+
+    /** Copies the records currently held, oldest first. */
+    public synchronized GattRecording snapshot() {
+        GattRecording.Builder builder = new GattRecording.Builder(size);
+        for (int i = 0; i < size; i++) {
+            int index = (first + i) % capacity;
+            builder.add(timestamps[index], kinds[index], new UUID(uuidMsb[index], uuidLsb[index]), instances[index],
+                    statuses[index], arena, offsets[index], lengths[index]);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.projet.ble;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable sequence of GATT records taken from a {@link GattRecorder}, oldest first.
+ *
+ * <p>File layout (big-endian): magic {@code "GREC"}, format version (short), the characteristic
+ * table (short count, then most/least significant bits of each UUID), the record count (int),
+ * then per record: timestamp in nanoseconds relative to the first record (long), kind (byte),
+ * service instance (byte), characteristic index (short), status (short), payload length
+ * (short) and payload bytes. Version 1 files carry no service instance and are rejected: with
+ * several AICS instances their values cannot be routed back.
+ */
+public final class GattRecording {
+
+    public static final byte NOTIFICATION = 1;
+    public static final byte READ = 2;
+    public static final byte WRITE = 3;
+    public static final byte DESCRIPTOR_WRITE = 4;
+
+    private static final int MAGIC = 0x47524543;
+    private static final short VERSION = 2;
+    private static final int RECORD_HEADER_BYTES = 8 + 1 + 1 + 2 + 2 + 2;
+
+    private final long[] timestamps;
+    private final byte[] kinds;
+    private final byte[] instances;
+    private final short[] uuidIndexes;
+    private final UUID[] uuids;
+    private final int[] statuses;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final byte[] payloads;
+
+    private GattRecording(long[] timestamps, byte[] kinds, byte[] instances, short[] uuidIndexes, UUID[] uuids,
+                          int[] statuses, int[] offsets, int[] lengths, byte[] payloads) {
+        this.timestamps = timestamps;
+        this.kinds = kinds;
+        this.instances = instances;
+        this.uuidIndexes = uuidIndexes;
+        this.uuids = uuids;
+        this.statuses = statuses;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.payloads = payloads;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    /** Monotonic, only meaningful relative to the other records. */
+    public long getTimestampNanos(int index) { return timestamps[index]; }
+    public byte getKind(int index) { return kinds[index]; }
+    /** Rank of the characteristic's service instance, -1 for an instance discovery had not found. */
+    public int getInstance(int index) { return instances[index]; }
+    public UUID getCharacteristicUuid(int index) { return uuids[uuidIndexes[index]]; }
+    public int getStatus(int index) { return statuses[index]; }
+
+    public byte[] getPayload(int index) {
+        return Arrays.copyOfRange(payloads, offsets[index], offsets[index] + lengths[index]);
+    }
+
+    /** @return true for the records carrying a characteristic value: notifications and successful reads. */
+    public boolean carriesValue(int index) {
+        return kinds[index] == NOTIFICATION || (kinds[index] == READ && statuses[index] == GattResult.GATT_SUCCESS);
+    }
+
+    /** One more than the highest service instance recorded, at least one. */
+    public int getInstanceCount() {
+        int count = 1;
+        for (byte instance : instances) count = Math.max(count, instance + 1);
+        return count;
+    }
+
+    // --- Binary file ---
+
+    public void writeTo(Path file) throws IOException {
+        long size = 4 + 2 + 2 + 16L * uuids.length + 4 + (long) RECORD_HEADER_BYTES * size() + payloads.length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.putShort((short) uuids.length);
+            for (UUID uuid : uuids) {
+                buffer.putLong(uuid.getMostSignificantBits());
+                buffer.putLong(uuid.getLeastSignificantBits());
+            }
+            buffer.putInt(size());
+            long origin = size() > 0 ? timestamps[0] : 0;
+            for (int i = 0; i < size(); i++) {
+                buffer.putLong(timestamps[i] - origin);
+                buffer.put(kinds[i]);
+                buffer.put(instances[i]);
+                buffer.putShort(uuidIndexes[i]);
+                buffer.putShort((short) statuses[i]);
+                buffer.putShort((short) lengths[i]);
+                buffer.put(payloads, offsets[i], lengths[i]);
+            }
+            buffer.force();
+        }
+    }
+
+    public static GattRecording readFrom(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static GattRecording parse(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a GATT recording");
+            short version = buffer.getShort();
+            if (version != VERSION) throw new IOException("Unsupported GATT recording version: " + version);
+            UUID[] uuids = new UUID[buffer.getShort() & 0xFFFF];
+            for (int i = 0; i < uuids.length; i++) {
+                uuids[i] = new UUID(buffer.getLong(), buffer.getLong());
+            }
+            int count = buffer.getInt();
+            if (count < 0 || (long) count * RECORD_HEADER_BYTES > buffer.remaining()) {
+                throw new IOException("Truncated GATT recording");
+            }
+            Builder builder = new Builder(count);
+            byte[] payload = new byte[GattRecorder.MAX_PAYLOAD];
+            for (int i = 0; i < count; i++) {
+                long timestamp = buffer.getLong();
+                byte kind = buffer.get();
+                int instance = buffer.get();
+                int uuidIndex = buffer.getShort() & 0xFFFF;
+                int status = buffer.getShort();
+                int length = buffer.getShort() & 0xFFFF;
+                if (uuidIndex >= uuids.length || length > payload.length || instance < -1) {
+                    throw new IOException("Corrupt GATT record " + i);
+                }
+                buffer.get(payload, 0, length);
+                builder.add(timestamp, kind, uuids[uuidIndex], instance, status, payload, 0, length);
+            }
+            return builder.build();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated GATT recording", e);
+        }
+    }
+
+    /** Accumulates records, interning characteristic UUIDs into the table. */
+    static final class Builder {
+
+        private final long[] timestamps;
+        private final byte[] kinds;
+        private final byte[] instances;
+        private final short[] uuidIndexes;
+        private final int[] statuses;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final List<UUID> uuids = new ArrayList<>();
+        private final Map<UUID, Short> uuidIndex = new HashMap<>();
+        private byte[] payloads = new byte[256];
+        private int payloadBytes;
+        private int count;
+
+        Builder(int capacity) {
+            timestamps = new long[capacity];
+            kinds = new byte[capacity];
+            instances = new byte[capacity];
+            uuidIndexes = new short[capacity];
+            statuses = new int[capacity];
+            offsets = new int[capacity];
+            lengths = new int[capacity];
+        }
+
+        void add(long timestampNanos, byte kind, UUID uuid, int instance, int status, byte[] source, int offset, int length) {
+            Short index = uuidIndex.get(uuid);
+            if (index == null) {
+                index = (short) uuids.size();
+                uuids.add(uuid);
+                uuidIndex.put(uuid, index);
+            }
+            if (payloadBytes + length > payloads.length) {
+                payloads = Arrays.copyOf(payloads, Math.max(payloads.length * 2, payloadBytes + length));
+            }
+            System.arraycopy(source, offset, payloads, payloadBytes, length);
+            timestamps[count] = timestampNanos;
+            kinds[count] = kind;
+            instances[count] = (byte) instance;
+            uuidIndexes[count] = index;
+            statuses[count] = status;
+            offsets[count] = payloadBytes;
+            lengths[count] = length;
+            payloadBytes += length;
+            count++;
+        }
+
+        GattRecording build() {
+            return new GattRecording(timestamps, kinds, instances, uuidIndexes, uuids.toArray(new UUID[0]), statuses,
+                    offsets, lengths, Arrays.copyOf(payloads, payloadBytes));
+        }
+    }
+}
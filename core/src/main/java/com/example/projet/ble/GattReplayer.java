@@ -0,0 +1,78 @@
+package com.example.projet.ble;
+
+/**
+ * Feeds a {@link GattRecording} back through the decoders and the {@link HeadsetState}, either
+ * as fast as possible (offline throughput, deterministic reproduction in tests) or on an
+ * {@link EventLoop} following the recorded timing, optionally sped up. Each value goes to the
+ * service instance it was recorded from; the state grows to every recorded instance.
+ */
+public final class GattReplayer {
+
+    private final GattRecording recording;
+    private final HeadsetState state;
+
+    // --- Timed replay, confined to the event loop thread ---
+    private EventLoop eventLoop;
+    private double speed;
+    private Runnable onDone;
+    private int next;
+    private boolean cancelled;
+    private final Runnable step = this::step;
+
+    public GattReplayer(GattRecording recording, HeadsetState state) {
+        this.recording = recording;
+        this.state = state;
+        state.ensureAudioInputs(recording.getInstanceCount());
+    }
+
+    /** @return how many records changed the decoded state. */
+    public int replayAll() {
+        int changes = 0;
+        for (int i = 0; i < recording.size(); i++) {
+            if (apply(i)) changes++;
+        }
+        return changes;
+    }
+
+    /**
+     * Replays on the event loop, keeping the recorded gaps divided by {@code speed}.
+     *
+     * @param onDone run on the event loop after the last record, unless {@link #cancel() cancelled}
+     */
+    public void start(EventLoop eventLoop, double speed, Runnable onDone) {
+        if (speed <= 0) throw new IllegalArgumentException("speed: " + speed);
+        this.eventLoop = eventLoop;
+        this.speed = speed;
+        this.onDone = onDone;
+        eventLoop.post(step);
+    }
+
+    public void cancel() {
+        eventLoop.post(() -> {
+            cancelled = true;
+            eventLoop.removeCallbacks(step);
+        });
+    }
+
+    private void step() {
+        if (cancelled) return;
+        if (next < recording.size()) {
+            // Everything due within the same millisecond goes in one pass
+            long dueNanos = recording.getTimestampNanos(next);
+            while (next < recording.size() && recording.getTimestampNanos(next) - dueNanos < 1_000_000) {
+                apply(next++);
+            }
+        }
+        if (next >= recording.size()) {
+            onDone.run();
+            return;
+        }
+        long gapNanos = recording.getTimestampNanos(next) - recording.getTimestampNanos(next - 1);
+        eventLoop.postDelayed(step, (long) (gapNanos / 1_000_000.0 / speed));
+    }
+
+    private boolean apply(int index) {
+        return recording.carriesValue(index)
+                && state.onValue(recording.getInstance(index), recording.getCharacteristicUuid(index), recording.getPayload(index));
+    }
+}
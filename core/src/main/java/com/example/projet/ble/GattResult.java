@@ -0,0 +1,29 @@
+package com.example.projet.ble;
+
+import androidx.annotation.Nullable;
+
+/** Outcome of a completed {@link GattOperation}. */
+public final class GattResult {
+
+    public static final int GATT_SUCCESS = 0;
+
+    private final int status;
+    @Nullable private final byte[] value;
+    private final int intValue;
+
+    public GattResult(int status, @Nullable byte[] value, int intValue) {
+        this.status = status;
+        this.value = value;
+        this.intValue = intValue;
+    }
+
+    public int getStatus() { return status; }
+
+    public boolean isSuccess() { return status == GATT_SUCCESS; }
+
+    /** Characteristic value for reads, the written value for writes. */
+    @Nullable public byte[] getValue() { return value; }
+
+    /** Negotiated MTU for {@link GattOperation.Type#REQUEST_MTU}. */
+    public int getIntValue() { return intValue; }
+}
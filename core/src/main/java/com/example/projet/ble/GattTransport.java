@@ -0,0 +1,69 @@
+package com.example.projet.ble;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The GATT client a {@link DeviceSession} drives. On Android it wraps {@code BluetoothGatt};
+ * tests plug in a simulated peripheral. It runs the operations the session's queue starts and
+ * reports the link's events through {@link Callback}.
+ *
+ * <p>A service exposed several times is addressed by instance: its rank among the services of
+ * that UUID, in handle order.
+ *
+ * <p>Confined to the event loop thread, except {@link #getAddress()}.
+ */
+public interface GattTransport extends GattOperationQueue.OperationRunner {
+
+    /** Link events, delivered on the event loop thread until {@link #close()}. */
+    interface Callback {
+        void onConnected();
+
+        void onDisconnected(int status);
+
+        /** Completes a discovery; the layout and instance counts are up to date when it succeeds. */
+        void onServicesDiscovered(int status);
+
+        /** The server's layout changed; the stack already dropped what it had discovered. */
+        void onServiceChanged();
+
+        /** @param instance -1 for a service instance the last discovery did not find */
+        void onCharacteristicRead(UUID characteristicUuid, int instance, int status, byte[] value);
+
+        /** @param instance -1 for a service instance the last discovery did not find */
+        void onCharacteristicChanged(UUID characteristicUuid, int instance, byte[] value);
+
+        void onCharacteristicWrite(UUID characteristicUuid, int instance, int status);
+
+        void onDescriptorWrite(UUID characteristicUuid, int instance, UUID descriptorUuid, int status);
+
+        void onMtuChanged(int mtu, int status);
+
+        /** After a PHY request or a change from the peer; not tied to a queued operation. */
+        void onPhyUpdate(int txPhy, int status);
+    }
+
+    String getAddress();
+
+    /** A bonded server keeps the CCCD values across connections. */
+    boolean isBonded();
+
+    /** Opens a new client; any previous one was closed through {@link #close()}. */
+    void connect(boolean autoConnect, Callback callback);
+
+    /** Disconnects and releases the client. The callback hears nothing more, not even the disconnection. */
+    void close();
+
+    /** Sorted {@link GattAttributeCache#layoutLine} of every discovered characteristic. */
+    List<String> describeLayout();
+
+    /** Instances of that service found by the last discovery. */
+    int getServiceCount(UUID serviceUuid);
+
+    boolean hasCharacteristic(UUID serviceUuid, UUID characteristicUuid);
+
+    boolean supportsWriteWithoutResponse(UUID serviceUuid, UUID characteristicUuid);
+
+    /** Routes notifications to the client side without writing the remote CCCD. */
+    boolean enableLocalNotifications(UUID serviceUuid, UUID characteristicUuid, int instance);
+}
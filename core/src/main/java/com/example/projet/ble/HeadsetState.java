@@ -0,0 +1,82 @@
+package com.example.projet.ble;
+
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_DESCRIPTION_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_STATE_UUID;
+import static com.example.projet.ble.BleUuids.GAIN_SETTING_PROPERTIES_UUID;
+import static com.example.projet.ble.BleUuids.MIC_MUTE_UUID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Decoded MICS/AICS state of one headset: the MICS mute and one {@link AudioInput} per AICS
+ * instance. Every value goes through {@link #onValue}, whether it comes from a read, a
+ * notification or the attribute cache; the listener only hears about actual changes. Confined
+ * to the event loop thread.
+ */
+public final class HeadsetState {
+
+    /** Values restored from the attribute cache to populate the controls before the first read. */
+    public static final Set<UUID> CACHED_VALUE_UUIDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            MIC_MUTE_UUID, AUDIO_INPUT_STATE_UUID, AUDIO_INPUT_DESCRIPTION_UUID, GAIN_SETTING_PROPERTIES_UUID)));
+
+    public interface Listener {
+        void onMicMuteChanged(MuteState mute);
+        void onAudioDescriptionChanged(int input, String description);
+        void onAudioInputStateChanged(int input, String state);
+        void onAudioInputControlsChanged(int input, AudioInputControls controls);
+    }
+
+    private final Listener listener;
+    private final DecoderRegistry decoders = new DecoderRegistry();
+    private final MicMuteState micMute = new MicMuteState();
+    private final List<AudioInput> audioInputs = new ArrayList<>();
+
+    public HeadsetState(Listener listener) {
+        this.listener = listener;
+        decoders.register(MIC_MUTE_UUID, micMute, () -> listener.onMicMuteChanged(micMute.getMute()));
+        audioInputs.add(new AudioInput(0, listener));
+    }
+
+    /** Grows to {@code count} audio inputs once discovery found them; there is always at least one. */
+    public void ensureAudioInputs(int count) {
+        while (audioInputs.size() < count) {
+            audioInputs.add(new AudioInput(audioInputs.size(), listener));
+        }
+    }
+
+    /** Value of the MICS or of the first AICS instance. */
+    public boolean onValue(UUID characteristicUuid, byte[] data) {
+        return onValue(0, characteristicUuid, data);
+    }
+
+    /**
+     * @param instance rank of the AICS instance the characteristic belongs to, ignored for MICS
+     * @return true when the value changed the decoded state.
+     */
+    public boolean onValue(int instance, UUID characteristicUuid, byte[] data) {
+        if (MIC_MUTE_UUID.equals(characteristicUuid)) return decoders.dispatch(characteristicUuid, data);
+        if (instance < 0 || instance >= audioInputs.size()) return false;
+        return audioInputs.get(instance).onValue(characteristicUuid, data);
+    }
+
+    public MicMuteState getMicMute() { return micMute; }
+    public int getAudioInputCount() { return audioInputs.size(); }
+    public AudioInput getAudioInput(int index) { return audioInputs.get(index); }
+
+    // --- First audio input, the only one of most headsets ---
+
+    public AudioInputState getAudioInputState() { return audioInputs.get(0).getState(); }
+    public AudioInputDescription getAudioInputDescription() { return audioInputs.get(0).getDescription(); }
+    public GainSettingProperties getGainSettingProperties() { return audioInputs.get(0).getGainSettingProperties(); }
+
+    /** Only meaningful once an Audio Input State was decoded. */
+    public AudioInputControls getAudioInputControls() {
+        return audioInputs.get(0).getControls();
+    }
+}
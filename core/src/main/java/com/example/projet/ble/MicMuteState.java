@@ -0,0 +1,25 @@
+package com.example.projet.ble;
+
+/** MICS Mute characteristic (0x2BC3). */
+public final class MicMuteState implements CharacteristicDecoder {
+
+    private MuteState mute;
+
+    @Override
+    public boolean decode(byte[] data) {
+        if (data.length < 1) return false;
+        MuteState decoded = MuteState.fromValue(data[0] & 0xFF);
+        if (decoded == null || decoded == mute) return false;
+        mute = decoded;
+        return true;
+    }
+
+    /** @return the last decoded state, null until the first value arrives. */
+    public MuteState getMute() {
+        return mute;
+    }
+
+    public boolean isMuted() {
+        return mute == MuteState.MUTED;
+    }
+}
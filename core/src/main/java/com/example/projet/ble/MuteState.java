@@ -0,0 +1,16 @@
+package com.example.projet.ble;
+
+/** Mute field shared by MICS Mute and AICS Audio Input State. */
+public enum MuteState {
+    NOT_MUTED,
+    MUTED,
+    /** The server does not allow muting/unmuting right now. */
+    DISABLED;
+
+    private static final MuteState[] VALUES = values();
+
+    /** @return the decoded state, or null for a reserved value. */
+    static MuteState fromValue(int value) {
+        return value >= 0 && value < VALUES.length ? VALUES[value] : null;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.projet.ble;
+
+import java.util.Random;
+
+/**
+ * Keeps one headset link up once the user asked for it. After an unexpected disconnection the
+ * stale GATT client is closed and a new one is opened after a jittered exponential backoff;
+ * past {@link #DIRECT_ATTEMPTS} failed attempts it falls back to a background
+ * {@code autoConnect} request, which the controller completes whenever the headset comes back
+ * in range. Two watchdogs cover the cases where the stack stays silent: a direct attempt that
+ * never connects, and a link that connects but never gets its controls ready.
+ *
+ * <p>The time from losing a ready link to having the controls ready again is recorded as
+ * {@link BleMetrics#recordRecovery}. Confined to the event loop thread.
+ */
+public final class ReconnectController {
+
+    /** The GATT client side, driven on the event loop thread. */
+    public interface Connector {
+        /** Opens a new GATT client; any previous one was closed through {@link #close()}. */
+        void connect(boolean autoConnect);
+
+        /** Disconnects and closes the current GATT client, if any. */
+        void close();
+
+        /** A new attempt starts in {@code delayMs}, for the UI. */
+        void onReconnectScheduled(int attempt, long delayMs, boolean autoConnect);
+    }
+
+    static final int DIRECT_ATTEMPTS = 5;
+    static final long INITIAL_BACKOFF_MS = 500;
+    static final long MAX_BACKOFF_MS = 30_000;
+    /** Android gives up on a direct connection after about 30 s with status 133; we do it sooner. */
+    static final long CONNECT_TIMEOUT_MS = 10_000;
+    static final long READY_TIMEOUT_MS = 20_000;
+
+    private enum State { IDLE, CONNECTING, CONNECTED, READY, WAITING }
+
+    private final EventLoop eventLoop;
+    private final BleMetrics metrics;
+    private final Connector connector;
+    private final Random random;
+    private final Runnable retry = this::attempt;
+    private final Runnable connectWatchdog = this::onWatchdog;
+    private final Runnable readyWatchdog = this::onWatchdog;
+
+    private State state = State.IDLE;
+    /** Attempts since the link was last ready. */
+    private int attempts;
+    /** When control was lost, 0 while it is held or was never held. */
+    private long lostAtNanos;
+
+    public ReconnectController(EventLoop eventLoop, BleMetrics metrics, Connector connector) {
+        this(eventLoop, metrics, connector, new Random());
+    }
+
+    ReconnectController(EventLoop eventLoop, BleMetrics metrics, Connector connector, Random random) {
+        this.eventLoop = eventLoop;
+        this.metrics = metrics;
+        this.connector = connector;
+        this.random = random;
+    }
+
+    /** The user asked for this device: connect now, forgetting any backoff in progress. */
+    public void start() {
+        cancelTimers();
+        attempts = 0;
+        attempt();
+    }
+
+    /** The user let go of this device; the caller closes the client. */
+    public void stop() {
+        cancelTimers();
+        state = State.IDLE;
+        lostAtNanos = 0;
+    }
+
+    public void onConnected() {
+        if (state == State.IDLE) return;
+        eventLoop.removeCallbacks(connectWatchdog);
+        state = State.CONNECTED;
+        eventLoop.postDelayed(readyWatchdog, READY_TIMEOUT_MS);
+    }
+
+    /** Subscriptions and initial reads are done: the user has control again. */
+    public void onReady() {
+        if (state != State.CONNECTED) return;
+        eventLoop.removeCallbacks(readyWatchdog);
+        state = State.READY;
+        attempts = 0;
+        if (lostAtNanos != 0) {
+            metrics.recordRecovery(System.nanoTime() - lostAtNanos);
+            lostAtNanos = 0;
+        }
+    }
+
+    public void onDisconnected() {
+        if (state == State.IDLE || state == State.WAITING) return;
+        if (state == State.READY) lostAtNanos = System.nanoTime();
+        cancelTimers();
+        scheduleRetry();
+    }
+
+    private void attempt() {
+        attempts++;
+        boolean autoConnect = attempts > DIRECT_ATTEMPTS;
+        state = State.CONNECTING;
+        connector.close();
+        connector.connect(autoConnect);
+        // A background autoConnect request waits for the headset as long as it takes
+        if (!autoConnect) eventLoop.postDelayed(connectWatchdog, CONNECT_TIMEOUT_MS);
+    }
+
+    private void onWatchdog() {
+        if (state != State.CONNECTING && state != State.CONNECTED) return;
+        cancelTimers();
+        scheduleRetry();
+    }
+
+    private void scheduleRetry() {
+        state = State.WAITING;
+        connector.close();
+        long delayMs = backoffMs(attempts);
+        connector.onReconnectScheduled(attempts + 1, delayMs, attempts + 1 > DIRECT_ATTEMPTS);
+        eventLoop.postDelayed(retry, delayMs);
+    }
+
+    /** "Equal jitter": half the exponential step, plus up to the other half at random. */
+    long backoffMs(int failedAttempts) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(Math.max(failedAttempts - 1, 0), 16));
+        return ceiling / 2 + (long) (random.nextDouble() * (ceiling / 2));
+    }
+
+    private void cancelTimers() {
+        eventLoop.removeCallbacks(retry);
+        eventLoop.removeCallbacks(connectWatchdog);
+        eventLoop.removeCallbacks(readyWatchdog);
+    }
+}
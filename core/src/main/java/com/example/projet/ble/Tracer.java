@@ -0,0 +1,30 @@
+package com.example.projet.ble;
+
+/**
+ * Async trace sections around GATT operations, which start and finish in different callbacks.
+ * On Android this maps to {@code android.os.Trace} so they show up in Perfetto.
+ */
+public interface Tracer {
+
+    Tracer NONE = new Tracer() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void beginAsyncSection(String name, int cookie) {
+        }
+
+        @Override
+        public void endAsyncSection(String name, int cookie) {
+        }
+    };
+
+    /** Checked before building section names or cookies, so disabled tracing costs nothing. */
+    boolean isEnabled();
+
+    void beginAsyncSection(String name, int cookie);
+
+    void endAsyncSection(String name, int cookie);
+}
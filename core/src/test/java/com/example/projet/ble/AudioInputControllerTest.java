@@ -0,0 +1,151 @@
+package com.example.projet.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AudioInputControllerTest {
+
+    private final ManualEventLoop loop = new ManualEventLoop();
+    private final List<GattOperation> started = new ArrayList<>();
+    private GattOperationQueue queue;
+    private HeadsetState state;
+    private AudioInputController controller;
+    private int failures;
+
+    @Before
+    public void setUp() {
+        queue = new GattOperationScheduler(loop, 4).openQueue(operation -> started.add(operation));
+        state = new HeadsetState(new HeadsetState.Listener() {
+            @Override
+            public void onMicMuteChanged(MuteState mute) {
+            }
+
+            @Override
+            public void onAudioDescriptionChanged(int input, String description) {
+            }
+
+            @Override
+            public void onAudioInputStateChanged(int input, String rendered) {
+            }
+
+            @Override
+            public void onAudioInputControlsChanged(int input, AudioInputControls controls) {
+                controller.onStateChanged();
+            }
+        });
+        controller = new AudioInputController(loop, queue, state.getAudioInput(0), () -> failures++);
+        // Gain 0, not muted, manual mode, change counter 5; range -20..20
+        state.onValue(BleUuids.GAIN_SETTING_PROPERTIES_UUID, new byte[]{5, -20, 20});
+        state.onValue(BleUuids.AUDIO_INPUT_STATE_UUID, new byte[]{0, 0, 2, 5});
+        loop.runPending();
+    }
+
+    private GattOperation last() {
+        return started.get(started.size() - 1);
+    }
+
+    private void answerWrite(int status) {
+        queue.onOperationCompleted(GattOperation.Type.WRITE, BleUuids.AUDIO_INPUT_CONTROL_POINT_UUID, status, null, 0);
+        loop.runPending();
+    }
+
+    private void notifyState(byte[] value) {
+        state.onValue(BleUuids.AUDIO_INPUT_STATE_UUID, value);
+        loop.runPending();
+    }
+
+    @Test
+    public void sliderBurstSendsOnlyTheLatestTargetOncePreviousIsApplied() {
+        controller.setGain(3);
+        controller.setGain(6);
+        controller.setGain(9);
+        loop.runPending();
+        assertEquals(1, started.size());
+        assertArrayEquals(new byte[]{0x01, 5, 3}, last().getValue());
+
+        // Acknowledged, but the counter is not known until the state notification
+        answerWrite(GattResult.GATT_SUCCESS);
+        assertEquals(1, started.size());
+
+        notifyState(new byte[]{3, 0, 2, 6});
+        assertEquals(2, started.size());
+        assertArrayEquals(new byte[]{0x01, 6, 9}, last().getValue());
+    }
+
+    @Test
+    public void eachInputDrivesItsOwnAicsInstance() {
+        state.ensureAudioInputs(2);
+        AudioInputController second = new AudioInputController(loop, queue, state.getAudioInput(1), () -> failures++);
+        state.onValue(1, BleUuids.GAIN_SETTING_PROPERTIES_UUID, new byte[]{5, -10, 10});
+        state.onValue(1, BleUuids.AUDIO_INPUT_STATE_UUID, new byte[]{0, 0, 2, 40});
+
+        second.setGain(50);
+        loop.runPending();
+        assertEquals(1, started.size());
+        assertEquals(1, last().getServiceInstance());
+        assertArrayEquals(new byte[]{0x01, 40, 10}, last().getValue());
+        // The first input is untouched
+        assertEquals(5, state.getAudioInput(0).getState().getChangeCounter());
+    }
+
+    @Test
+    public void gainIsClampedToGainSettingProperties() {
+        controller.setGain(100);
+        loop.runPending();
+        assertArrayEquals(new byte[]{0x01, 5, 20}, last().getValue());
+    }
+
+    @Test
+    public void staleCounterTriggersOneReadAndOneRetry() {
+        controller.setGain(4);
+        loop.runPending();
+        answerWrite(AudioInputControlPoint.ERROR_INVALID_CHANGE_COUNTER);
+
+        GattOperation read = last();
+        assertEquals(GattOperation.Type.READ, read.getType());
+        assertEquals(BleUuids.AUDIO_INPUT_STATE_UUID, read.getCharacteristicUuid());
+        byte[] fresh = {0, 0, 2, 8};
+        state.onValue(BleUuids.AUDIO_INPUT_STATE_UUID, fresh);
+        queue.onOperationCompleted(GattOperation.Type.READ, BleUuids.AUDIO_INPUT_STATE_UUID, GattResult.GATT_SUCCESS, fresh, 0);
+        loop.runPending();
+        assertArrayEquals(new byte[]{0x01, 8, 4}, last().getValue());
+
+        int before = started.size();
+        answerWrite(AudioInputControlPoint.ERROR_INVALID_CHANGE_COUNTER);
+        assertEquals(before, started.size());
+        assertEquals(1, failures);
+    }
+
+    @Test
+    public void muteAndModeUseTheirOpcodesAndSkipNoOps() {
+        controller.setMuted(false); // already unmuted
+        controller.setAutomaticGainMode(true);
+        loop.runPending();
+        assertEquals(1, started.size());
+        assertArrayEquals(new byte[]{0x05, 5}, last().getValue());
+
+        answerWrite(GattResult.GATT_SUCCESS);
+        notifyState(new byte[]{0, 0, 3, 6});
+        controller.setMuted(true);
+        controller.setGain(10); // ignored in automatic mode
+        loop.runPending();
+        assertArrayEquals(new byte[]{0x03, 6}, last().getValue());
+        answerWrite(GattResult.GATT_SUCCESS);
+        notifyState(new byte[]{0, 1, 3, 7});
+        assertEquals(2, started.size());
+    }
+
+    @Test
+    public void missingNotificationFallsBackToARead() {
+        controller.setGain(2);
+        loop.runPending();
+        answerWrite(GattResult.GATT_SUCCESS);
+        loop.advance(AudioInputController.STATE_NOTIFICATION_TIMEOUT_MS);
+        assertEquals(GattOperation.Type.READ, last().getType());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.projet.ble;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class CharacteristicDecodersTest {
+
+    private static final UUID MUTE_UUID = UUID.fromString("00002BC3-0000-1000-8000-00805f9b34fb");
+
+    @Test
+    public void audioInputState_decodesSignedGainAndAllFields() {
+        AudioInputState state = new AudioInputState();
+        assertTrue(state.decode(new byte[]{(byte) -12, 2, 3, 7}));
+        assertEquals(-12, state.getGainSetting());
+        assertEquals(MuteState.DISABLED, state.getMute());
+        assertEquals(GainMode.AUTOMATIC, state.getGainMode());
+        assertEquals(7, state.getChangeCounter());
+        assertEquals("Gain:-12, Mute:Désactivé, Mode:Auto", state.render());
+    }
+
+    @Test
+    public void audioInputState_reusesRenderedStringUntilADisplayedFieldChanges() {
+        AudioInputState state = new AudioInputState();
+        state.decode(new byte[]{10, 0, 2, 1});
+        String first = state.render();
+
+        assertTrue(state.decode(new byte[]{10, 0, 2, 2})); // counter only
+        assertSame(first, state.render());
+        assertFalse(state.decode(new byte[]{10, 0, 2, 2}));
+
+        assertTrue(state.decode(new byte[]{11, 1, 2, 3}));
+        assertEquals("Gain:11, Mute:Muet, Mode:Manual", state.render());
+    }
+
+    @Test
+    public void audioInputState_ignoresReservedValues() {
+        AudioInputState state = new AudioInputState();
+        assertFalse(state.decode(new byte[]{0, 9, 0, 0}));
+        assertFalse(state.decode(new byte[]{0, 0}));
+    }
+
+    @Test
+    public void description_isDecodedAsUtf8OnlyWhenItChanges() {
+        AudioInputDescription description = new AudioInputDescription();
+        byte[] value = "Micro intégré".getBytes(StandardCharsets.UTF_8);
+        assertTrue(description.decode(value));
+        String decoded = description.getDescription();
+        assertEquals("Micro intégré", decoded);
+
+        assertFalse(description.decode(value.clone()));
+        assertSame(decoded, description.getDescription());
+        assertTrue(description.decode("Ligne".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("Ligne", description.getDescription());
+    }
+
+    @Test
+    public void gainSettingProperties_decodesSignedRangeAndClamps() {
+        GainSettingProperties properties = new GainSettingProperties();
+        assertFalse(properties.isKnown());
+        assertTrue(properties.decode(new byte[]{5, (byte) -40, 30}));
+        assertEquals(5, properties.getUnits());
+        assertEquals(-40, properties.getMinimum());
+        assertEquals(30, properties.getMaximum());
+        assertEquals(30, properties.clamp(90));
+        assertEquals(-40, properties.clamp(-100));
+        assertFalse(properties.decode(new byte[]{5, (byte) -40, 30}));
+        assertFalse(properties.decode(new byte[]{5, 10, 0})); // min above max
+    }
+
+    @Test
+    public void controlPoint_encodesOpcodeCounterAndSignedGain() {
+        assertArrayEquals(new byte[]{0x01, (byte) 200, (byte) -6}, AudioInputControlPoint.setGainSetting(200, -6));
+        assertArrayEquals(new byte[]{0x03, 7}, AudioInputControlPoint.setMuted(7, true));
+        assertArrayEquals(new byte[]{0x02, 7}, AudioInputControlPoint.setMuted(7, false));
+        assertArrayEquals(new byte[]{0x04, 1}, AudioInputControlPoint.setAutomaticGainMode(1, false));
+        assertArrayEquals(new byte[]{0x05, 1}, AudioInputControlPoint.setAutomaticGainMode(1, true));
+    }
+
+    @Test
+    public void registry_notifiesOnlyOnChange() {
+        DecoderRegistry registry = new DecoderRegistry();
+        MicMuteState mute = new MicMuteState();
+        int[] changes = new int[1];
+        registry.register(MUTE_UUID, mute, () -> changes[0]++);
+
+        assertTrue(registry.dispatch(MUTE_UUID, new byte[]{1}));
+        assertFalse(registry.dispatch(MUTE_UUID, new byte[]{1}));
+        assertTrue(registry.dispatch(MUTE_UUID, new byte[]{2}));
+        assertFalse(registry.dispatch(UUID.randomUUID(), new byte[]{0}));
+        assertEquals(2, changes[0]);
+        assertEquals(MuteState.DISABLED, mute.getMute());
+    }
+}
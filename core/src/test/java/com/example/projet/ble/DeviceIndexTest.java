@@ -0,0 +1,43 @@
+package com.example.projet.ble;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class DeviceIndexTest {
+
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+    private static final List<UUID> NO_SERVICES = Collections.emptyList();
+
+    @Test
+    public void newDevice_isPublished_repeatedAdvertisementIsNot() {
+        DeviceIndex index = new DeviceIndex();
+        assertTrue(index.onAdvertisement(ADDRESS, "Mic", -60, 0, NO_SERVICES));
+        assertFalse(index.onAdvertisement(ADDRESS, "Mic", -61, 100, NO_SERVICES));
+        assertEquals(1, index.size());
+        assertEquals(100, index.get(ADDRESS).getLastSeenMillis());
+        assertEquals(-60, index.get(ADDRESS).getRssi());
+    }
+
+    @Test
+    public void rssiChange_isThrottled() {
+        DeviceIndex index = new DeviceIndex();
+        index.onAdvertisement(ADDRESS, "Mic", -60, 0, NO_SERVICES);
+
+        assertFalse(index.onAdvertisement(ADDRESS, "Mic", -80, DeviceIndex.RSSI_MIN_INTERVAL_MS - 1, NO_SERVICES));
+        assertTrue(index.onAdvertisement(ADDRESS, "Mic", -80, DeviceIndex.RSSI_MIN_INTERVAL_MS, NO_SERVICES));
+        assertEquals(-80, index.get(ADDRESS).getRssi());
+    }
+
+    @Test
+    public void nameChange_isPublishedImmediately() {
+        DeviceIndex index = new DeviceIndex();
+        index.onAdvertisement(ADDRESS, "Appareil inconnu", -60, 0, NO_SERVICES);
+        assertTrue(index.onAdvertisement(ADDRESS, "Mic", -60, 10, NO_SERVICES));
+        assertEquals("Mic", index.snapshot().get(0).getName());
+    }
+}
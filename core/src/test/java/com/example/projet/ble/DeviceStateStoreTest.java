@@ -0,0 +1,66 @@
+package com.example.projet.ble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DeviceStateStoreTest {
+
+    @Test
+    public void update_publishesOnlyStructuralChanges() {
+        DeviceStateStore store = new DeviceStateStore();
+        List<DeviceSnapshot> published = new ArrayList<>();
+        store.addObserver((previous, current) -> published.add(current));
+
+        assertTrue(store.update(s -> s.withPhase(ConnectionPhase.CONNECTING)));
+        assertFalse(store.update(s -> s.withPhase(ConnectionPhase.CONNECTING)));
+        assertTrue(store.update(s -> s.withLinkInfo("MTU " + 247)));
+        // An equal but distinct string is still no change
+        assertFalse(store.update(s -> s.withLinkInfo(new StringBuilder("MTU ").append(247).toString())));
+
+        assertEquals(2, published.size());
+        assertEquals(ConnectionPhase.CONNECTING, store.getSnapshot().getPhase());
+        assertEquals("MTU 247", store.getSnapshot().getLinkInfo());
+    }
+
+    @Test
+    public void update_handsPreviousAndCurrentToObservers() {
+        DeviceStateStore store = new DeviceStateStore();
+        store.update(s -> s.withPhase(ConnectionPhase.READY));
+        DeviceSnapshot before = store.getSnapshot();
+        DeviceSnapshot[] seen = new DeviceSnapshot[2];
+        store.addObserver((previous, current) -> {
+            seen[0] = previous;
+            seen[1] = current;
+        });
+
+        store.update(s -> s.withPhase(ConnectionPhase.DISCONNECTED));
+
+        assertSame(before, seen[0]);
+        assertSame(store.getSnapshot(), seen[1]);
+        assertTrue(seen[0].isConnected());
+        assertFalse(seen[1].isConnected());
+    }
+
+    @Test
+    public void audioInputControls_ignoreTheChangeCounter() {
+        GainSettingProperties properties = new GainSettingProperties();
+        properties.decode(new byte[]{5, -20, 20});
+        AudioInputState state = new AudioInputState();
+        state.decode(new byte[]{10, 0, 2, 1});
+        AudioInputControls first = new AudioInputControls(state, properties);
+        state.decode(new byte[]{10, 0, 2, 2});
+        AudioInputControls second = new AudioInputControls(state, properties);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        DeviceSnapshot snapshot = DeviceSnapshot.EMPTY.withInputControls(0, first);
+        assertSame(snapshot, snapshot.withInputControls(0, second));
+
+        state.decode(new byte[]{11, 0, 2, 3});
+        assertNotEquals(first, new AudioInputControls(state, properties));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.projet.ble;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Real-time {@link EventLoop} on a single thread, the JVM counterpart of the BLE handler thread
+ * for long-running tests. The first exception thrown by a task is kept for {@link #getFailure()}.
+ */
+final class ExecutorEventLoop implements EventLoop, AutoCloseable {
+
+    private final ScheduledExecutorService executor;
+    private final Map<Runnable, List<ScheduledFuture<?>>> scheduled = new HashMap<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ExecutorEventLoop(String name) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, name));
+        executor.setRemoveOnCancelPolicy(true);
+        this.executor = executor;
+    }
+
+    @Override
+    public void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable task, long delayMs) {
+        ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+        self[0] = executor.schedule(() -> {
+            synchronized (this) {
+                List<ScheduledFuture<?>> futures = scheduled.get(task);
+                if (futures != null && futures.remove(self[0]) && futures.isEmpty()) scheduled.remove(task);
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+        scheduled.computeIfAbsent(task, k -> new ArrayList<>()).add(self[0]);
+    }
+
+    @Override
+    public synchronized void removeCallbacks(Runnable task) {
+        List<ScheduledFuture<?>> futures = scheduled.remove(task);
+        if (futures == null) return;
+        for (ScheduledFuture<?> future : futures) future.cancel(false);
+    }
+
+    Throwable getFailure() {
+        return failure.get();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.projet.ble;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class GattAttributeCacheTest {
+
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+    private static final UUID SERVICE = UUID.fromString("00001843-0000-1000-8000-00805f9b34fb");
+    private static final UUID DESCRIPTION = UUID.fromString("00002b7c-0000-1000-8000-00805f9b34fb");
+    private static final UUID STATE = UUID.fromString("00002b77-0000-1000-8000-00805f9b34fb");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entry_roundTripsThroughDisk() throws Exception {
+        GattAttributeCache cache = new GattAttributeCache(new File(folder.getRoot(), "gatt_cache"));
+        GattAttributeCache.Entry entry = new GattAttributeCache.Entry(layout(), new byte[]{1, 2, 3});
+        entry.markSubscribed(STATE);
+        entry.putValue(DESCRIPTION, "Micro".getBytes("UTF-8"));
+        cache.store(ADDRESS, entry);
+
+        GattAttributeCache.Entry loaded = cache.load(ADDRESS);
+        assertNotNull(loaded);
+        assertEquals(layout(), loaded.getLayout());
+        assertArrayEquals(new byte[]{1, 2, 3}, loaded.getDatabaseHash());
+        assertTrue(loaded.isSubscribed(STATE));
+        assertFalse(loaded.isSubscribed(DESCRIPTION));
+        assertArrayEquals("Micro".getBytes("UTF-8"), loaded.getValue(DESCRIPTION));
+    }
+
+    @Test
+    public void entry_keepsSubscriptionsAndValuesPerServiceInstance() throws Exception {
+        GattAttributeCache cache = new GattAttributeCache(new File(folder.getRoot(), "gatt_cache"));
+        GattAttributeCache.Entry entry = new GattAttributeCache.Entry(layout(), null);
+        entry.putValue(DESCRIPTION, "Micro".getBytes("UTF-8"));
+        entry.putValue(1, DESCRIPTION, "Ligne".getBytes("UTF-8"));
+        entry.markSubscribed(1, STATE);
+        cache.store(ADDRESS, entry);
+
+        GattAttributeCache.Entry loaded = cache.load(ADDRESS);
+        assertNotNull(loaded);
+        assertEquals(2, loaded.getInstanceCount());
+        assertArrayEquals("Micro".getBytes("UTF-8"), loaded.getValue(0, DESCRIPTION));
+        assertArrayEquals("Ligne".getBytes("UTF-8"), loaded.getValue(1, DESCRIPTION));
+        assertFalse(loaded.isSubscribed(0, STATE));
+        assertTrue(loaded.isSubscribed(1, STATE));
+        assertNull(loaded.getValue(2, DESCRIPTION));
+    }
+
+    @Test
+    public void entry_doesNotMatchAnotherDatabase() {
+        GattAttributeCache.Entry entry = new GattAttributeCache.Entry(layout(), new byte[]{1});
+        assertTrue(entry.matches(layout(), new byte[]{1}));
+        assertTrue(entry.matches(layout(), null));
+        assertFalse(entry.matches(layout(), new byte[]{2}));
+        assertFalse(entry.matches(Collections.emptyList(), new byte[]{1}));
+    }
+
+    @Test
+    public void corruptedOrInvalidatedEntry_isMissing() throws Exception {
+        File directory = folder.newFolder("gatt_cache");
+        GattAttributeCache cache = new GattAttributeCache(directory);
+        try (FileOutputStream out = new FileOutputStream(new File(directory, "AABBCCDDEEFF.bin"))) {
+            out.write(new byte[]{0, 0, 0, 1, 0x7f});
+        }
+        assertNull(cache.load(ADDRESS));
+
+        cache.store(ADDRESS, new GattAttributeCache.Entry(layout(), null));
+        cache.invalidate(ADDRESS);
+        assertNull(cache.load(ADDRESS));
+    }
+
+    private static List<String> layout() {
+        return Arrays.asList(
+                GattAttributeCache.layoutLine(SERVICE, STATE, 0x12),
+                GattAttributeCache.layoutLine(SERVICE, DESCRIPTION, 0x02));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.projet.ble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class GattOperationSchedulerTest {
+
+    private static final UUID SERVICE = UUID.fromString("0000184D-0000-1000-8000-00805f9b34fb");
+    private static final UUID MUTE = UUID.fromString("00002BC3-0000-1000-8000-00805f9b34fb");
+
+    private final ManualEventLoop loop = new ManualEventLoop();
+    private final List<GattOperation> started = new ArrayList<>();
+
+    private GattOperationQueue openQueue(GattOperationScheduler scheduler) {
+        return scheduler.openQueue(operation -> started.add(operation));
+    }
+
+    private static void complete(GattOperationQueue queue, GattOperation operation) {
+        queue.onOperationCompleted(operation.getType(), operation.getCharacteristicUuid(),
+                GattResult.GATT_SUCCESS, null, 0);
+    }
+
+    @Test
+    public void capsRequestsInFlightAcrossQueues() {
+        GattOperationScheduler scheduler = new GattOperationScheduler(loop, 2);
+        List<GattOperationQueue> queues = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            GattOperationQueue queue = openQueue(scheduler);
+            queues.add(queue);
+            queue.enqueue(GattOperation.read(SERVICE, MUTE));
+        }
+        loop.runPending();
+        assertEquals(2, started.size());
+
+        complete(queues.get(0), started.get(0));
+        loop.runPending();
+        assertEquals(3, started.size());
+    }
+
+    @Test
+    public void oneRequestInFlightPerQueue() {
+        GattOperationScheduler scheduler = new GattOperationScheduler(loop, 4);
+        GattOperationQueue queue = openQueue(scheduler);
+        queue.enqueue(GattOperation.read(SERVICE, MUTE));
+        queue.enqueue(GattOperation.read(SERVICE, MUTE));
+        loop.runPending();
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    public void phyRequestDoesNotWaitForItsCallback() {
+        GattOperationScheduler scheduler = new GattOperationScheduler(loop, 4);
+        GattOperationQueue queue = openQueue(scheduler);
+        CompletableFuture<GattResult> phy = queue.enqueue(GattOperation.setPreferredPhy(ConnectionTuner.PHY_LE_2M_MASK));
+        queue.enqueue(GattOperation.read(SERVICE, MUTE));
+        loop.runPending();
+        assertTrue(phy.isDone());
+        assertEquals(2, started.size());
+    }
+
+    @Test
+    public void urgentLaneStartsFirstAcrossQueues() {
+        GattOperationScheduler scheduler = new GattOperationScheduler(loop, 1);
+        GattOperationQueue first = openQueue(scheduler);
+        GattOperationQueue second = openQueue(scheduler);
+        first.enqueue(GattOperation.read(SERVICE, MUTE));
+        loop.runPending();
+        first.enqueue(GattOperation.read(SERVICE, MUTE).withPriority(GattOperation.Priority.LOW));
+        GattOperation urgent = GattOperation.write(SERVICE, MUTE, new byte[]{1}).withPriority(GattOperation.Priority.HIGH);
+        second.enqueue(urgent);
+        loop.runPending();
+
+        complete(first, started.get(0));
+        loop.runPending();
+        assertSame(urgent, started.get(1));
+    }
+
+    @Test
+    public void coalescingWriteReplacesPendingOne() throws Exception {
+        GattOperationScheduler scheduler = new GattOperationScheduler(loop, 4);
+        GattOperationQueue queue = openQueue(scheduler);
+        queue.enqueue(GattOperation.read(SERVICE, MUTE));
+        CompletableFuture<GattResult> stale = queue.enqueue(GattOperation.write(SERVICE, MUTE, new byte[]{1}).coalescing());
+        CompletableFuture<GattResult> latest = queue.enqueue(GattOperation.write(SERVICE, MUTE, new byte[]{0}).coalescing());
+        loop.runPending();
+
+        complete(queue, started.get(0));
+        loop.runPending();
+        assertEquals(2, started.size());
+        assertArrayEquals(new byte[]{0}, started.get(1).getValue());
+
+        complete(queue, started.get(1));
+        loop.runPending();
+        assertTrue(latest.get().isSuccess());
+        assertSame(latest.get(), stale.get());
+    }
+
+    @Test
+    public void timeoutFailsOperationAndFreesItsSlot() throws Exception {
+        GattOperationScheduler scheduler = new GattOperationScheduler(loop, 1);
+        GattOperationQueue queue = openQueue(scheduler);
+        CompletableFuture<GattResult> dropped = queue.enqueue(GattOperation.read(SERVICE, MUTE));
+        openQueue(scheduler).enqueue(GattOperation.read(SERVICE, MUTE));
+        loop.runPending();
+        assertEquals(1, started.size());
+
+        loop.advance(GattOperation.DEFAULT_TIMEOUT_MS);
+        try {
+            dropped.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(2, started.size());
+    }
+}
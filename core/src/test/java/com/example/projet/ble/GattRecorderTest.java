@@ -0,0 +1,155 @@
+package com.example.projet.ble;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class GattRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static HeadsetState newState() {
+        return new HeadsetState(new HeadsetState.Listener() {
+            @Override
+            public void onMicMuteChanged(MuteState mute) {
+            }
+
+            @Override
+            public void onAudioDescriptionChanged(int input, String description) {
+            }
+
+            @Override
+            public void onAudioInputStateChanged(int input, String state) {
+            }
+
+            @Override
+            public void onAudioInputControlsChanged(int input, AudioInputControls controls) {
+            }
+        });
+    }
+
+    @Test
+    public void keepsTheMostRecentRecordsWhenFull() {
+        GattRecorder recorder = new GattRecorder(3, GattRecorder.MAX_PAYLOAD);
+        for (int i = 0; i < 5; i++) {
+            recorder.record(i, GattRecording.NOTIFICATION, BleUuids.MIC_MUTE_UUID, 0, 0, new byte[]{(byte) i});
+        }
+        GattRecording recording = recorder.snapshot();
+        assertEquals(3, recording.size());
+        assertEquals(2, recording.getTimestampNanos(0));
+        assertArrayEquals(new byte[]{4}, recording.getPayload(2));
+        assertEquals(2, recorder.getOverwrittenCount());
+    }
+
+    @Test
+    public void arenaWrapEvictsOverwrittenPayloads() {
+        GattRecorder recorder = new GattRecorder(100, GattRecorder.MAX_PAYLOAD);
+        byte[] payload = new byte[200];
+        for (int i = 0; i < 4; i++) {
+            payload[0] = (byte) i;
+            recorder.record(i, GattRecording.READ, BleUuids.AUDIO_INPUT_DESCRIPTION_UUID, 0, 0, payload);
+        }
+        // 512 bytes hold two 200-byte payloads: the third wrapped to the start and evicted the first two
+        GattRecording recording = recorder.snapshot();
+        assertEquals(2, recording.size());
+        assertEquals(2, recording.getPayload(0)[0]);
+        assertEquals(3, recording.getPayload(1)[0]);
+    }
+
+    @Test
+    public void fileRoundTrip() throws IOException {
+        GattRecorder recorder = new GattRecorder();
+        recorder.record(1_000, GattRecording.NOTIFICATION, BleUuids.MIC_MUTE_UUID, 0, 0, new byte[]{1});
+        recorder.record(2_500, GattRecording.WRITE, BleUuids.AUDIO_INPUT_CONTROL_POINT_UUID, 0, 0x80, null);
+        recorder.record(4_000, GattRecording.READ, BleUuids.AUDIO_INPUT_STATE_UUID, 1, 0, new byte[]{0, 0, 2, 5});
+        Path file = folder.getRoot().toPath().resolve("session.grec");
+
+        recorder.snapshot().writeTo(file);
+        GattRecording read = GattRecording.readFrom(file);
+
+        assertEquals(3, read.size());
+        assertEquals(0, read.getTimestampNanos(0));
+        assertEquals(3_000, read.getTimestampNanos(2));
+        assertEquals(BleUuids.AUDIO_INPUT_CONTROL_POINT_UUID, read.getCharacteristicUuid(1));
+        assertEquals(0x80, read.getStatus(1));
+        assertEquals(GattRecording.WRITE, read.getKind(1));
+        assertEquals(0, read.getInstance(1));
+        assertEquals(1, read.getInstance(2));
+        assertArrayEquals(new byte[]{0, 0, 2, 5}, read.getPayload(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFiles() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("other.grec");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        GattRecording.readFrom(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsVersion1Files() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("v1.grec");
+        // Magic, version 1, empty characteristic table, no records
+        Files.write(file, new byte[]{'G', 'R', 'E', 'C', 0, 1, 0, 0, 0, 0, 0, 0});
+        GattRecording.readFrom(file);
+    }
+
+    @Test
+    public void replayRebuildsTheState() {
+        GattRecorder recorder = new GattRecorder();
+        recorder.record(0, GattRecording.NOTIFICATION, BleUuids.MIC_MUTE_UUID, 0, 0, new byte[]{1});
+        recorder.record(1, GattRecording.NOTIFICATION, BleUuids.MIC_MUTE_UUID, 0, 0, new byte[]{1});
+        recorder.record(2, GattRecording.READ, BleUuids.AUDIO_INPUT_STATE_UUID, 0, 0x0E, new byte[]{9, 9, 9, 9});
+        recorder.record(3, GattRecording.READ, BleUuids.AUDIO_INPUT_STATE_UUID, 0, 0, new byte[]{3, 1, 2, 7});
+        HeadsetState state = newState();
+
+        int changes = new GattReplayer(recorder.snapshot(), state).replayAll();
+
+        assertEquals(2, changes); // the duplicate notification and the failed read change nothing
+        assertEquals(MuteState.MUTED, state.getMicMute().getMute());
+        assertEquals(7, state.getAudioInputState().getChangeCounter());
+    }
+
+    @Test
+    public void replayRoutesValuesToTheirAudioInput() {
+        GattRecorder recorder = new GattRecorder();
+        recorder.record(0, GattRecording.NOTIFICATION, BleUuids.AUDIO_INPUT_STATE_UUID, 0, 0, new byte[]{4, 0, 2, 1});
+        recorder.record(1, GattRecording.NOTIFICATION, BleUuids.AUDIO_INPUT_STATE_UUID, 1, 0, new byte[]{-6, 1, 2, 1});
+        // Not enumerated yet when it arrived: nowhere to route it
+        recorder.record(2, GattRecording.NOTIFICATION, BleUuids.AUDIO_INPUT_STATE_UUID, -1, 0, new byte[]{9, 1, 2, 2});
+        HeadsetState state = newState();
+
+        int changes = new GattReplayer(recorder.snapshot(), state).replayAll();
+
+        assertEquals(2, changes);
+        assertEquals(2, state.getAudioInputCount());
+        assertEquals(4, state.getAudioInput(0).getState().getGainSetting());
+        assertEquals(-6, state.getAudioInput(1).getState().getGainSetting());
+        assertEquals(MuteState.MUTED, state.getAudioInput(1).getState().getMute());
+    }
+
+    @Test
+    public void timedReplayFollowsRecordedGaps() {
+        GattRecorder recorder = new GattRecorder();
+        recorder.record(0, GattRecording.NOTIFICATION, BleUuids.MIC_MUTE_UUID, 0, 0, new byte[]{1});
+        recorder.record(100_000_000, GattRecording.NOTIFICATION, BleUuids.MIC_MUTE_UUID, 0, 0, new byte[]{0});
+        HeadsetState state = newState();
+        ManualEventLoop loop = new ManualEventLoop();
+        boolean[] done = new boolean[1];
+
+        new GattReplayer(recorder.snapshot(), state).start(loop, 2, () -> done[0] = true);
+        loop.runPending();
+        assertEquals(MuteState.MUTED, state.getMicMute().getMute());
+        loop.advance(49);
+        assertEquals(MuteState.MUTED, state.getMicMute().getMute());
+        loop.advance(1);
+        assertEquals(MuteState.NOT_MUTED, state.getMicMute().getMute());
+        assertTrue(done[0]);
+    }
+}
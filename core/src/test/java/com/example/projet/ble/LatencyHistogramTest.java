@@ -0,0 +1,65 @@
+package com.example.projet.ble;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsArePowersOfTwoMicros() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(1, LatencyHistogram.bucketOf(1));
+        assertEquals(2, LatencyHistogram.bucketOf(3));
+        assertEquals(11, LatencyHistogram.bucketOf(1500));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesReportBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) histogram.record(1_500_000); // 1.5 ms
+        histogram.record(40_000_000); // 40 ms
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(2048, snapshot.getPercentileMicros(50));
+        assertEquals(2048, snapshot.getPercentileMicros(99));
+        assertEquals(40_000, snapshot.getPercentileMicros(100));
+        assertEquals(40_000, snapshot.getMaxMicros());
+        assertEquals((99 * 1500 + 40_000) / 100, snapshot.getMeanMicros());
+    }
+
+    @Test
+    public void resetEmptiesTheHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000);
+        histogram.reset();
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMaxMicros());
+        assertEquals(0, snapshot.getPercentileMicros(50));
+    }
+
+    @Test
+    public void queueRecordsWaitAndRoundTripPerType() {
+        ManualEventLoop loop = new ManualEventLoop();
+        BleMetrics metrics = new BleMetrics();
+        GattOperationScheduler scheduler = new GattOperationScheduler(loop, 4, metrics, Tracer.NONE);
+        GattOperationQueue queue = scheduler.openQueue(operation -> true);
+        UUID service = UUID.fromString("0000184D-0000-1000-8000-00805f9b34fb");
+        UUID mute = UUID.fromString("00002BC3-0000-1000-8000-00805f9b34fb");
+        queue.enqueue(GattOperation.write(service, mute, new byte[]{1}));
+        loop.runPending();
+        queue.onOperationCompleted(GattOperation.Type.WRITE, mute, GattResult.GATT_SUCCESS, null, 0);
+        loop.runPending();
+
+        Map<String, LatencyHistogram.Snapshot> snapshots = metrics.snapshot();
+        assertEquals(1, snapshots.get("Attente WRITE").getCount());
+        assertEquals(1, snapshots.get("Aller-retour WRITE").getCount());
+        assertFalse(snapshots.containsKey("Aller-retour READ"));
+    }
+}
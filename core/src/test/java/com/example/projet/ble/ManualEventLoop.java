@@ -0,0 +1,61 @@
+package com.example.projet.ble;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/** {@link EventLoop} driven by the test: nothing runs until {@link #runPending()} or {@link #advance}. */
+final class ManualEventLoop implements EventLoop {
+
+    private static final class Task {
+        final Runnable runnable;
+        final long dueMs;
+
+        Task(Runnable runnable, long dueMs) {
+            this.runnable = runnable;
+            this.dueMs = dueMs;
+        }
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long nowMs;
+
+    @Override
+    public void post(Runnable task) {
+        tasks.add(new Task(task, nowMs));
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        tasks.add(new Task(task, nowMs + delayMs));
+    }
+
+    @Override
+    public void removeCallbacks(Runnable task) {
+        tasks.removeIf(t -> t.runnable == task);
+    }
+
+    /** Runs every task that is due, including those posted while running. */
+    void runPending() {
+        Task next;
+        while ((next = pollDue()) != null) {
+            next.runnable.run();
+        }
+    }
+
+    void advance(long ms) {
+        nowMs += ms;
+        runPending();
+    }
+
+    private Task pollDue() {
+        for (Iterator<Task> it = tasks.iterator(); it.hasNext(); ) {
+            Task task = it.next();
+            if (task.dueMs <= nowMs) {
+                it.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.projet.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReconnectControllerTest {
+
+    private final ManualEventLoop loop = new ManualEventLoop();
+    private final BleMetrics metrics = new BleMetrics();
+    private final List<Boolean> connects = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+    private int closes;
+    private ReconnectController controller;
+
+    @Before
+    public void setUp() {
+        controller = new ReconnectController(loop, metrics, new ReconnectController.Connector() {
+            @Override
+            public void connect(boolean autoConnect) {
+                connects.add(autoConnect);
+            }
+
+            @Override
+            public void close() {
+                closes++;
+            }
+
+            @Override
+            public void onReconnectScheduled(int attempt, long delayMs, boolean autoConnect) {
+                delays.add(delayMs);
+            }
+        }, new Random(1));
+    }
+
+    @Test
+    public void backoffGrowsWithJitterUpToTheCap() {
+        for (int failed = 1; failed <= 12; failed++) {
+            long ceiling = Math.min(ReconnectController.MAX_BACKOFF_MS, ReconnectController.INITIAL_BACKOFF_MS << (failed - 1));
+            long delay = controller.backoffMs(failed);
+            assertTrue(delay >= ceiling / 2 && delay <= ceiling);
+        }
+    }
+
+    @Test
+    public void dropoutClosesTheStaleClientAndRetries() {
+        controller.start();
+        controller.onConnected();
+        controller.onReady();
+        int closesBefore = closes;
+
+        controller.onDisconnected();
+        assertEquals(closesBefore + 1, closes);
+        loop.advance(delays.get(0));
+        assertEquals(2, connects.size());
+        assertFalse(connects.get(1));
+        assertTrue("the next attempt also starts from a closed client", closes > closesBefore + 1);
+    }
+
+    @Test
+    public void fallsBackToAutoConnectAfterDirectAttempts() {
+        controller.start();
+        for (int i = 0; i < ReconnectController.DIRECT_ATTEMPTS; i++) {
+            controller.onDisconnected(); // status 133 without ever connecting
+            loop.advance(ReconnectController.MAX_BACKOFF_MS);
+        }
+        assertEquals(ReconnectController.DIRECT_ATTEMPTS + 1, connects.size());
+        assertTrue(connects.get(connects.size() - 1));
+        // No connect watchdog on a background request
+        loop.advance(ReconnectController.CONNECT_TIMEOUT_MS * 10);
+        assertEquals(ReconnectController.DIRECT_ATTEMPTS + 1, connects.size());
+    }
+
+    @Test
+    public void watchdogRetriesASilentConnect() {
+        controller.start();
+        loop.advance(ReconnectController.CONNECT_TIMEOUT_MS);
+        assertEquals(1, delays.size());
+        loop.advance(delays.get(0));
+        assertEquals(2, connects.size());
+    }
+
+    @Test
+    public void watchdogRetriesALinkThatNeverGetsReady() {
+        controller.start();
+        controller.onConnected();
+        loop.advance(ReconnectController.READY_TIMEOUT_MS);
+        assertEquals(1, delays.size());
+    }
+
+    @Test
+    public void recordsTimeToRecoverControl() {
+        controller.start();
+        controller.onConnected();
+        controller.onReady();
+        assertTrue(metrics.snapshot().isEmpty());
+
+        controller.onDisconnected();
+        loop.advance(delays.get(0));
+        controller.onConnected();
+        controller.onReady();
+        assertEquals(1, metrics.snapshot().get("Reprise après coupure").getCount());
+    }
+
+    @Test
+    public void stopCancelsPendingAttempts() {
+        controller.start();
+        controller.onDisconnected();
+        controller.stop();
+        loop.advance(ReconnectController.MAX_BACKOFF_MS);
+        assertEquals(1, connects.size());
+        controller.onDisconnected();
+        assertEquals(1, delays.size());
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.projet.ble;
+
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_CONTROL_POINT_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_CONTROL_SERVICE_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_DESCRIPTION_UUID;
+import static com.example.projet.ble.BleUuids.AUDIO_INPUT_STATE_UUID;
+import static com.example.projet.ble.BleUuids.GAIN_SETTING_PROPERTIES_UUID;
+import static com.example.projet.ble.BleUuids.MIC_CONTROL_SERVICE_UUID;
+import static com.example.projet.ble.BleUuids.MIC_MUTE_UUID;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * In-process MICS (0x184D) + AICS (0x1843) headset behind the {@link GattTransport} seam, so a
+ * real {@link DeviceSession} runs against it without hardware: reconnection, attribute cache,
+ * hydration, decoders and control point pipeline included. It exposes one or more AICS
+ * instances, each with its own state, and routes every operation by its service instance.
+ * Answers arrive on the event loop
+ * after a configurable latency and jitter; faults (dropped callbacks, GATT 133 errors,
+ * disconnections mid-operation) and spontaneous state changes (someone turning the gain dial
+ * on the headset) are injected at configurable rates.
+ *
+ * <p>Confined to the event loop thread, except {@link Config}, which may be tuned while running.
+ */
+final class SimulatedPeripheral implements GattTransport {
+
+    /** The catch-all error Android reports for link-level failures. */
+    static final int GATT_ERROR = 133;
+    /** Supervision timeout, what a link lost out of range reports. */
+    static final int GATT_CONN_TIMEOUT = 8;
+    static final int GATT_ATTRIBUTE_NOT_FOUND = 0x0A;
+    /** MICS application error: the microphone mute is disabled. */
+    static final int MICS_ERROR_MUTE_DISABLED = 0x80;
+
+    static final int MIN_GAIN = -20;
+    static final int MAX_GAIN = 20;
+    static final int MTU = 247;
+
+    static final class Config {
+        volatile long latencyMs = 8;
+        volatile long jitterMs = 4;
+        volatile double dropRate;
+        volatile double errorRate;
+        volatile double disconnectRate;
+        /** Spontaneous gain changes on the device; 0 disables them. */
+        volatile long dialIntervalMs;
+        /** Some headsets only answer a mute write, without notifying the new value. */
+        volatile boolean notifyMuteWrites = true;
+
+        Config withLatency(long latencyMs, long jitterMs) {
+            this.latencyMs = latencyMs;
+            this.jitterMs = jitterMs;
+            return this;
+        }
+
+        /** Probabilities per operation. */
+        Config withFaults(double dropRate, double errorRate, double disconnectRate) {
+            this.dropRate = dropRate;
+            this.errorRate = errorRate;
+            this.disconnectRate = disconnectRate;
+            return this;
+        }
+
+        Config withDialInterval(long dialIntervalMs) {
+            this.dialIntervalMs = dialIntervalMs;
+            return this;
+        }
+
+        Config withMuteWriteNotifications(boolean notifyMuteWrites) {
+            this.notifyMuteWrites = notifyMuteWrites;
+            return this;
+        }
+    }
+
+    private final EventLoop eventLoop;
+    private final Config config;
+    private final Random random;
+    private final String address;
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final Runnable dial = this::turnDial;
+    private final Runnable establish = this::establish;
+    private Callback callback;
+    private boolean connected;
+
+    /** Server state of one AICS instance. */
+    private static final class Input {
+        final String description;
+        int gain;
+        int inputMute;
+        int gainMode = GainMode.MANUAL.ordinal();
+        int changeCounter;
+
+        Input(String description) {
+            this.description = description;
+        }
+
+        byte[] state() {
+            return new byte[]{(byte) gain, (byte) inputMute, (byte) gainMode, (byte) changeCounter};
+        }
+    }
+
+    // --- Server state ---
+    private boolean micMuted;
+    private final List<Input> inputs = new ArrayList<>();
+
+    // --- Counters, read by the tests once the loop is idle ---
+    int operations;
+    int dropped;
+    int errors;
+    int disconnections;
+
+    SimulatedPeripheral(EventLoop eventLoop, Config config, long seed) {
+        this(eventLoop, config, seed, 1);
+    }
+
+    SimulatedPeripheral(EventLoop eventLoop, Config config, long seed, int audioInputs) {
+        this.eventLoop = eventLoop;
+        this.config = config;
+        this.random = new Random(seed);
+        this.address = String.format(Locale.ROOT, "5E:00:00:00:00:%02X", seed & 0xFF);
+        for (int i = 0; i < audioInputs; i++) {
+            inputs.add(new Input(i == 0 ? "Micro simulé" : "Micro simulé " + (i + 1)));
+        }
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    int getAudioInputCount() { return inputs.size(); }
+    int getGain() { return getGain(0); }
+    int getGain(int input) { return inputs.get(input).gain; }
+    boolean isInputMuted() { return isInputMuted(0); }
+    boolean isInputMuted(int input) { return inputs.get(input).inputMute == MuteState.MUTED.ordinal(); }
+    boolean isMicMuted() { return micMuted; }
+
+    /** Someone pressed the mute button on the headset. */
+    void pressMuteButton(boolean muted) {
+        if (muted == micMuted) return;
+        micMuted = muted;
+        if (connected) notifyLater(MIC_MUTE_UUID, 0, new byte[]{(byte) (muted ? 1 : 0)});
+    }
+
+    // --- GattTransport ---
+
+    @Override
+    public String getAddress() {
+        return address;
+    }
+
+    /** Not bonded: every connection writes its CCCDs again. */
+    @Override
+    public boolean isBonded() {
+        return false;
+    }
+
+    @Override
+    public void connect(boolean autoConnect, Callback callback) {
+        this.callback = callback;
+        eventLoop.postDelayed(establish, delay());
+    }
+
+    @Override
+    public void close() {
+        eventLoop.removeCallbacks(establish);
+        dropLink();
+        callback = null;
+    }
+
+    @Override
+    public List<String> describeLayout() {
+        List<String> layout = new ArrayList<>();
+        layout.add(GattAttributeCache.layoutLine(MIC_CONTROL_SERVICE_UUID, MIC_MUTE_UUID, 0x1A));
+        for (int i = 0; i < inputs.size(); i++) {
+            layout.addAll(Arrays.asList(
+                    GattAttributeCache.layoutLine(AUDIO_INPUT_CONTROL_SERVICE_UUID, AUDIO_INPUT_STATE_UUID, 0x12),
+                    GattAttributeCache.layoutLine(AUDIO_INPUT_CONTROL_SERVICE_UUID, GAIN_SETTING_PROPERTIES_UUID, 0x02),
+                    GattAttributeCache.layoutLine(AUDIO_INPUT_CONTROL_SERVICE_UUID, AUDIO_INPUT_DESCRIPTION_UUID, 0x02),
+                    GattAttributeCache.layoutLine(AUDIO_INPUT_CONTROL_SERVICE_UUID, AUDIO_INPUT_CONTROL_POINT_UUID, 0x08)));
+        }
+        layout.sort(null);
+        return layout;
+    }
+
+    @Override
+    public int getServiceCount(UUID serviceUuid) {
+        if (MIC_CONTROL_SERVICE_UUID.equals(serviceUuid)) return 1;
+        return AUDIO_INPUT_CONTROL_SERVICE_UUID.equals(serviceUuid) ? inputs.size() : 0;
+    }
+
+    @Override
+    public boolean hasCharacteristic(UUID serviceUuid, UUID characteristicUuid) {
+        if (MIC_CONTROL_SERVICE_UUID.equals(serviceUuid)) return MIC_MUTE_UUID.equals(characteristicUuid);
+        return AUDIO_INPUT_CONTROL_SERVICE_UUID.equals(serviceUuid) && (AUDIO_INPUT_STATE_UUID.equals(characteristicUuid)
+                || GAIN_SETTING_PROPERTIES_UUID.equals(characteristicUuid) || AUDIO_INPUT_DESCRIPTION_UUID.equals(characteristicUuid)
+                || AUDIO_INPUT_CONTROL_POINT_UUID.equals(characteristicUuid));
+    }
+
+    /** Mute writes get a response, which is what confirms them. */
+    @Override
+    public boolean supportsWriteWithoutResponse(UUID serviceUuid, UUID characteristicUuid) {
+        return false;
+    }
+
+    @Override
+    public boolean enableLocalNotifications(UUID serviceUuid, UUID characteristicUuid, int instance) {
+        return hasCharacteristic(serviceUuid, characteristicUuid) && hasInstance(serviceUuid, instance);
+    }
+
+    private boolean hasInstance(UUID serviceUuid, int instance) {
+        int count = AUDIO_INPUT_CONTROL_SERVICE_UUID.equals(serviceUuid) ? inputs.size() : 1;
+        return instance >= 0 && instance < count;
+    }
+
+    @Override
+    public boolean start(GattOperation operation) {
+        if (!connected) return false;
+        if (operation.getType() == GattOperation.Type.SET_PREFERRED_PHY) {
+            // Accepted by the call itself; the new PHY is reported on its own later
+            later(() -> callback.onPhyUpdate(ConnectionTuner.PHY_LE_2M, GattResult.GATT_SUCCESS), delay());
+            return true;
+        }
+        // Acknowledged by the call itself, there is nothing to answer
+        if (operation.getType().completesOnStart()) return true;
+        // Like Android, an instance discovery did not find is refused before going on air
+        if (operation.getServiceUuid() != null && !hasInstance(operation.getServiceUuid(), operation.getServiceInstance())) {
+            return false;
+        }
+        operations++;
+        double roll = random.nextDouble();
+        if (roll < config.disconnectRate) {
+            later(this::disconnect, delay() / 2);
+            return true;
+        }
+        roll -= config.disconnectRate;
+        if (roll < config.dropRate) {
+            dropped++; // the queue's timeout has to recover
+            return true;
+        }
+        roll -= config.dropRate;
+        if (roll < config.errorRate) {
+            errors++;
+            later(() -> respond(operation, GATT_ERROR, null, 0), delay());
+            return true;
+        }
+        later(() -> answer(operation), delay());
+        return true;
+    }
+
+    private void answer(GattOperation operation) {
+        switch (operation.getType()) {
+            case READ:
+                byte[] value = read(operation.getCharacteristicUuid(), operation.getServiceInstance());
+                respond(operation, value != null ? GattResult.GATT_SUCCESS : GATT_ATTRIBUTE_NOT_FOUND, value, 0);
+                break;
+            case WRITE:
+            case WRITE_NO_RESPONSE:
+                respond(operation, write(operation.getCharacteristicUuid(), operation.getServiceInstance(), operation.getValue()), null, 0);
+                break;
+            case REQUEST_MTU:
+                respond(operation, GattResult.GATT_SUCCESS, null, Math.min(MTU, operation.getIntArg()));
+                break;
+            default:
+                respond(operation, GattResult.GATT_SUCCESS, null, 0);
+                break;
+        }
+    }
+
+    /** Answers through the callback Android would use for that operation. */
+    private void respond(GattOperation operation, int status, byte[] value, int intValue) {
+        UUID characteristic = operation.getCharacteristicUuid();
+        int instance = operation.getServiceInstance();
+        switch (operation.getType()) {
+            case READ:
+                callback.onCharacteristicRead(characteristic, instance, status, value != null ? value : new byte[0]);
+                break;
+            case WRITE:
+            case WRITE_NO_RESPONSE:
+                callback.onCharacteristicWrite(characteristic, instance, status);
+                break;
+            case DESCRIPTOR_WRITE:
+                callback.onDescriptorWrite(characteristic, instance, operation.getDescriptorUuid(), status);
+                break;
+            case REQUEST_MTU:
+                callback.onMtuChanged(status == GattResult.GATT_SUCCESS ? intValue : 23, status);
+                break;
+            case DISCOVER_SERVICES:
+                callback.onServicesDiscovered(status);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private byte[] read(UUID uuid, int instance) {
+        if (MIC_MUTE_UUID.equals(uuid)) return new byte[]{(byte) (micMuted ? 1 : 0)};
+        Input input = inputs.get(instance);
+        if (AUDIO_INPUT_STATE_UUID.equals(uuid)) return input.state();
+        if (GAIN_SETTING_PROPERTIES_UUID.equals(uuid)) return new byte[]{1, (byte) MIN_GAIN, (byte) MAX_GAIN};
+        if (AUDIO_INPUT_DESCRIPTION_UUID.equals(uuid)) return input.description.getBytes(StandardCharsets.UTF_8);
+        return null;
+    }
+
+    private int write(UUID uuid, int instance, byte[] value) {
+        if (MIC_MUTE_UUID.equals(uuid)) {
+            if (inputs.get(0).inputMute == MuteState.DISABLED.ordinal()) return MICS_ERROR_MUTE_DISABLED;
+            boolean muted = value[0] == 1;
+            if (muted != micMuted) {
+                micMuted = muted;
+                if (config.notifyMuteWrites) notifyLater(MIC_MUTE_UUID, 0, new byte[]{(byte) (muted ? 1 : 0)});
+            }
+            return GattResult.GATT_SUCCESS;
+        }
+        if (AUDIO_INPUT_CONTROL_POINT_UUID.equals(uuid)) return controlPoint(instance, value);
+        return GATT_ATTRIBUTE_NOT_FOUND;
+    }
+
+    private int controlPoint(int instance, byte[] request) {
+        Input input = inputs.get(instance);
+        int gain = input.gain;
+        int inputMute = input.inputMute;
+        int gainMode = input.gainMode;
+        if (request.length < 2) return AudioInputControlPoint.ERROR_OPCODE_NOT_SUPPORTED;
+        if ((request[1] & 0xFF) != input.changeCounter) return AudioInputControlPoint.ERROR_INVALID_CHANGE_COUNTER;
+        switch (request[0]) {
+            case AudioInputControlPoint.OPCODE_SET_GAIN_SETTING:
+                if (request.length < 3) return AudioInputControlPoint.ERROR_OPCODE_NOT_SUPPORTED;
+                if (request[2] < MIN_GAIN || request[2] > MAX_GAIN) return AudioInputControlPoint.ERROR_VALUE_OUT_OF_RANGE;
+                // Ignored, not rejected, while the gain is automatic
+                if (gainMode == GainMode.MANUAL.ordinal()) changeState(instance, request[2], inputMute, gainMode);
+                return GattResult.GATT_SUCCESS;
+            case AudioInputControlPoint.OPCODE_UNMUTE:
+            case AudioInputControlPoint.OPCODE_MUTE:
+                if (inputMute == MuteState.DISABLED.ordinal()) return AudioInputControlPoint.ERROR_MUTE_DISABLED;
+                changeState(instance, gain, request[0] == AudioInputControlPoint.OPCODE_MUTE
+                        ? MuteState.MUTED.ordinal() : MuteState.NOT_MUTED.ordinal(), gainMode);
+                return GattResult.GATT_SUCCESS;
+            case AudioInputControlPoint.OPCODE_SET_MANUAL_GAIN_MODE:
+            case AudioInputControlPoint.OPCODE_SET_AUTOMATIC_GAIN_MODE:
+                changeState(instance, gain, inputMute, request[0] == AudioInputControlPoint.OPCODE_SET_AUTOMATIC_GAIN_MODE
+                        ? GainMode.AUTOMATIC.ordinal() : GainMode.MANUAL.ordinal());
+                return GattResult.GATT_SUCCESS;
+            default:
+                return AudioInputControlPoint.ERROR_OPCODE_NOT_SUPPORTED;
+        }
+    }
+
+    private void changeState(int instance, int gain, int inputMute, int gainMode) {
+        Input input = inputs.get(instance);
+        if (gain == input.gain && inputMute == input.inputMute && gainMode == input.gainMode) return;
+        input.gain = gain;
+        input.inputMute = inputMute;
+        input.gainMode = gainMode;
+        input.changeCounter = (input.changeCounter + 1) & 0xFF;
+        notifyLater(AUDIO_INPUT_STATE_UUID, instance, input.state());
+    }
+
+    /** Notifications race the write response, like on air. */
+    private void notifyLater(UUID uuid, int instance, byte[] value) {
+        later(() -> callback.onCharacteristicChanged(uuid, instance, value), delay());
+    }
+
+    private void scheduleDial() {
+        eventLoop.removeCallbacks(dial);
+        long interval = config.dialIntervalMs;
+        if (interval > 0) eventLoop.postDelayed(dial, interval);
+    }
+
+    /** Turns the dial of one input, picked at random. */
+    private void turnDial() {
+        if (!connected) return;
+        int instance = random.nextInt(inputs.size());
+        Input input = inputs.get(instance);
+        if (input.gainMode == GainMode.MANUAL.ordinal()) {
+            changeState(instance, Math.max(MIN_GAIN, Math.min(MAX_GAIN, input.gain + random.nextInt(3) - 1)),
+                    input.inputMute, input.gainMode);
+        }
+        scheduleDial();
+    }
+
+    private void establish() {
+        connected = true;
+        scheduleDial();
+        callback.onConnected();
+    }
+
+    /** The link drops on its own; the client hears about it. */
+    private void disconnect() {
+        if (!connected) return;
+        disconnections++;
+        dropLink();
+        callback.onDisconnected(GATT_CONN_TIMEOUT);
+    }
+
+    private void dropLink() {
+        connected = false;
+        eventLoop.removeCallbacks(dial);
+        for (Runnable pending : scheduled) eventLoop.removeCallbacks(pending);
+        scheduled.clear();
+    }
+
+    private long delay() {
+        long jitter = config.jitterMs;
+        return config.latencyMs + (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0);
+    }
+
+    /** Work the link owns: dropped if it goes down first. */
+    private void later(Runnable task, long delayMs) {
+        Runnable[] self = new Runnable[1];
+        self[0] = () -> {
+            scheduled.remove(self[0]);
+            if (connected) task.run();
+        };
+        scheduled.add(self[0]);
+        eventLoop.postDelayed(self[0], delayMs);
+    }
+}
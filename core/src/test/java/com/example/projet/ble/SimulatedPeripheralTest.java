@@ -0,0 +1,185 @@
+package com.example.projet.ble;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class SimulatedPeripheralTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ManualEventLoop loop = new ManualEventLoop();
+    private final SimulatedPeripheral.Config config = new SimulatedPeripheral.Config().withLatency(8, 4);
+    private SimulatedPeripheral peripheral;
+    private DeviceSession session;
+    private int commandsRejected;
+
+    @Before
+    public void setUp() {
+        open(1);
+    }
+
+    /** A session over a new peripheral with that many AICS instances, hydrated. */
+    private void open(int audioInputs) {
+        peripheral = new SimulatedPeripheral(loop, config, 42, audioInputs);
+        session = new DeviceSession(peripheral, loop, new GattOperationScheduler(loop, 4),
+                new GattAttributeCache(folder.getRoot()), true, false, new DeviceSession.Listener() {
+                    @Override
+                    public void onStateChanged(DeviceSession session, DeviceSnapshot previous, DeviceSnapshot current) {
+                    }
+
+                    @Override
+                    public void onCommandRejected(DeviceSession session) {
+                        commandsRejected++;
+                    }
+                });
+        session.connect();
+        run(2000);
+    }
+
+    /** Millisecond by millisecond: the simulated answers are posted relative to the current time. */
+    private void run(long ms) {
+        loop.runPending();
+        for (long i = 0; i < ms; i++) loop.advance(1);
+    }
+
+    private void assertMirrorsPeripheral() {
+        DeviceSnapshot snapshot = session.getSnapshot();
+        assertEquals(ConnectionPhase.READY, snapshot.getPhase());
+        assertEquals(peripheral.getAudioInputCount(), snapshot.getInputCount());
+        for (int input = 0; input < snapshot.getInputCount(); input++) {
+            AudioInputControls controls = snapshot.getInput(input).getControls();
+            assertEquals(peripheral.getGain(input), controls.getGainSetting());
+            assertEquals(peripheral.isInputMuted(input), controls.getMute() == MuteState.MUTED);
+        }
+        assertTrue(session.getOperationQueue().isIdle());
+    }
+
+    @Test
+    public void hydratesFromThePeripheral() {
+        DeviceSnapshot snapshot = session.getSnapshot();
+        assertEquals(MuteState.NOT_MUTED, snapshot.getMicMute());
+        assertEquals("Micro simulé", snapshot.getInput(0).getDescription());
+        assertEquals(SimulatedPeripheral.MAX_GAIN, snapshot.getInput(0).getControls().getMaximumGain());
+        assertEquals("MTU " + SimulatedPeripheral.MTU + " · PHY 2M · Priorité haute", snapshot.getLinkInfo());
+        assertMirrorsPeripheral();
+    }
+
+    @Test
+    public void micMuteWriteIsConfirmedByTheWriteResponse() {
+        session.writeMicMute(true);
+        run(100);
+        assertTrue(peripheral.isMicMuted());
+        assertEquals(MuteState.MUTED, session.getSnapshot().getMicMute());
+        assertEquals(0, commandsRejected);
+    }
+
+    @Test
+    public void notifyAfterASilentAcknowledgedWriteIsNotDeduplicated() {
+        config.withMuteWriteNotifications(false);
+        session.writeMicMute(true);
+        run(100);
+        assertEquals(MuteState.MUTED, session.getSnapshot().getMicMute());
+
+        // The headset's own button brings back the value the decoder saw before the write
+        peripheral.pressMuteButton(false);
+        run(100);
+        assertEquals(MuteState.NOT_MUTED, session.getSnapshot().getMicMute());
+    }
+
+    @Test
+    public void gainSweepConvergesWhileTheDialMoves() {
+        config.withDialInterval(15);
+        for (int gain = -20; gain <= 20; gain += 2) {
+            session.setInputGain(0, gain);
+            run(5);
+        }
+        config.withDialInterval(0);
+        session.setInputGain(0, 7);
+        run(2000);
+        assertEquals(7, peripheral.getGain());
+        assertMirrorsPeripheral();
+    }
+
+    @Test
+    public void gattErrorsDropTargetsButKeepStateConsistent() {
+        config.withFaults(0, 0.3, 0);
+        for (int i = 0; i < 50; i++) {
+            session.setInputGain(0, i % 2 == 0 ? -5 : 5);
+            session.setInputMuted(0, i % 3 == 0);
+            run(40);
+        }
+        config.withFaults(0, 0, 0);
+        run(2000);
+        assertTrue(peripheral.errors > 0);
+        assertTrue(commandsRejected > 0);
+        assertMirrorsPeripheral();
+    }
+
+    @Test
+    public void eachAudioInputIsRoutedToItsOwnInstance() {
+        session.close();
+        run(10);
+        open(2);
+        assertEquals("Micro simulé 2", session.getSnapshot().getInput(1).getDescription());
+
+        session.setInputGain(1, 9);
+        session.setInputMuted(0, true);
+        run(500);
+        assertEquals(0, peripheral.getGain(0));
+        assertEquals(9, peripheral.getGain(1));
+        assertTrue(peripheral.isInputMuted(0));
+        assertFalse(peripheral.isInputMuted(1));
+        assertMirrorsPeripheral();
+
+        // Notifications of the second instance, from the device side
+        config.withDialInterval(15);
+        run(300);
+        config.withDialInterval(0);
+        run(500);
+        assertMirrorsPeripheral();
+    }
+
+    @Test
+    public void droppedCallbackTimesOutAndQueueRecovers() {
+        config.withFaults(1, 0, 0);
+        CompletableFuture<GattResult> lost = session.getOperationQueue().enqueue(GattOperation.read(
+                BleUuids.AUDIO_INPUT_CONTROL_SERVICE_UUID, BleUuids.AUDIO_INPUT_STATE_UUID));
+        run(GattOperation.DEFAULT_TIMEOUT_MS);
+        try {
+            lost.getNow(null);
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        config.withFaults(0, 0, 0);
+        CompletableFuture<GattResult> next = session.getOperationQueue().enqueue(GattOperation.read(
+                BleUuids.AUDIO_INPUT_CONTROL_SERVICE_UUID, BleUuids.AUDIO_INPUT_STATE_UUID));
+        run(100);
+        assertTrue(next.getNow(null).isSuccess());
+    }
+
+    @Test
+    public void disconnectMidOperationReconnectsAndRehydrates() {
+        config.withFaults(0, 0, 1);
+        session.setInputMuted(0, true);
+        run(10);
+        assertFalse(peripheral.isConnected());
+        assertEquals(ConnectionPhase.RECONNECTING, session.getSnapshot().getPhase());
+        config.withFaults(0, 0, 0);
+        run(ReconnectController.INITIAL_BACKOFF_MS + 1000);
+        assertTrue(peripheral.isConnected());
+        assertEquals(1, peripheral.disconnections);
+        // The target was dropped with the link; the user has to mute again
+        assertFalse(peripheral.isInputMuted());
+        assertMirrorsPeripheral();
+    }
+}
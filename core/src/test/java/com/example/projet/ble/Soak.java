@@ -0,0 +1,8 @@
+package com.example.projet.ble;
+
+/**
+ * JUnit category of the long-running tests, excluded from {@code test} and run by
+ * {@code ./gradlew :core:soakTest}.
+ */
+public interface Soak {
+}
@@ -0,0 +1,201 @@
+package com.example.projet.ble;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Several {@link DeviceSession}s over simulated headsets with one or two audio inputs, sharing
+ * one scheduler and attribute cache, driven by random user input while the links inject latency, jitter, dropped callbacks,
+ * GATT errors and disconnections. Prints throughput, tail latency and heap use periodically,
+ * then checks that every session got back to READY on its peripheral's state and that the heap
+ * did not grow.
+ *
+ * <p>Runs for {@code -Dsoak.minutes}, which only {@code ./gradlew :core:soakTest -Psoak.minutes=240}
+ * sets (1 by default); any other run skips it. The session logs are silenced meanwhile: each
+ * injected fault logs a trace.
+ */
+@Category(Soak.class)
+public class SoakTest {
+
+    private static final int HEADSETS = 4;
+    private static final long INPUT_INTERVAL_MS = 20;
+    private static final long MAX_HEAP_GROWTH_BYTES = 16L * 1024 * 1024;
+    /** Long enough for a stalled discovery to trip the ready watchdog and the retry to complete. */
+    private static final long QUIESCE_TIMEOUT_MS = ReconnectController.READY_TIMEOUT_MS + ReconnectController.MAX_BACKOFF_MS;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Logger log = Logger.getLogger("BLE_DEBUG");
+    private Level logLevel;
+
+    @Before
+    public void setUp() {
+        logLevel = log.getLevel();
+        assumeNotNull(System.getProperty("soak.minutes"));
+        log.setLevel(Level.OFF);
+    }
+
+    @After
+    public void tearDown() {
+        log.setLevel(logLevel);
+    }
+
+    @Test
+    public void headsetsUnderFaultsAndUserInput() throws Exception {
+        long durationMs = (long) (Double.parseDouble(System.getProperty("soak.minutes")) * 60_000);
+        long reportIntervalMs = Math.max(5_000, Math.min(60_000, durationMs / 10));
+        BleMetrics metrics = new BleMetrics();
+        SimulatedPeripheral.Config config = new SimulatedPeripheral.Config()
+                .withLatency(8, 6)
+                .withFaults(0.0005, 0.005, 0.0005)
+                .withDialInterval(250);
+        Random random = new Random(7);
+
+        try (ExecutorEventLoop loop = new ExecutorEventLoop("soak-loop")) {
+            GattOperationScheduler scheduler = new GattOperationScheduler(loop, GattOperationScheduler.DEFAULT_MAX_IN_FLIGHT,
+                    metrics, Tracer.NONE);
+            GattAttributeCache attributeCache = new GattAttributeCache(folder.getRoot());
+            List<SimulatedPeripheral> peripherals = new ArrayList<>();
+            List<DeviceSession> sessions = new ArrayList<>();
+            for (int i = 0; i < HEADSETS; i++) {
+                SimulatedPeripheral peripheral = new SimulatedPeripheral(loop, config, i, 1 + i % 2);
+                DeviceSession session = new DeviceSession(peripheral, loop, scheduler, attributeCache, true, false, IGNORED);
+                peripherals.add(peripheral);
+                sessions.add(session);
+                session.connect();
+            }
+            Thread.sleep(1000);
+            long baselineHeap = usedHeapAfterGc();
+
+            long start = System.nanoTime();
+            long nextReport = reportIntervalMs;
+            long completedAtLastReport = 0;
+            while (elapsedMs(start) < durationMs) {
+                int headset = random.nextInt(HEADSETS);
+                DeviceSession session = sessions.get(headset);
+                int input = random.nextInt(peripherals.get(headset).getAudioInputCount());
+                int action = random.nextInt(20);
+                if (action == 0) {
+                    session.setInputAutomaticGain(input, random.nextBoolean());
+                } else if (action < 4) {
+                    session.setInputMuted(input, random.nextBoolean());
+                } else {
+                    session.setInputGain(input, SimulatedPeripheral.MIN_GAIN
+                            + random.nextInt(SimulatedPeripheral.MAX_GAIN - SimulatedPeripheral.MIN_GAIN + 1));
+                }
+                Thread.sleep(INPUT_INTERVAL_MS);
+                if (elapsedMs(start) >= nextReport) {
+                    long completed = completedOperations(metrics);
+                    report(elapsedMs(start), (completed - completedAtLastReport) * 1000.0 / reportIntervalMs, metrics);
+                    completedAtLastReport = completed;
+                    nextReport += reportIntervalMs;
+                }
+                assertNull(loop.getFailure());
+            }
+
+            // Quiesce: no faults, no dial, let timeouts and reconnections play out
+            config.withFaults(0, 0, 0).withDialInterval(0);
+            for (int i = 0; i < HEADSETS; i++) {
+                for (int input = 0; input < peripherals.get(i).getAudioInputCount(); input++) {
+                    sessions.get(i).setInputAutomaticGain(input, false);
+                }
+            }
+            long quiesceStart = System.nanoTime();
+            String mismatch;
+            do {
+                Thread.sleep(500);
+                CompletableFuture<String> found = new CompletableFuture<>();
+                loop.post(() -> found.complete(describeMismatch(sessions, peripherals)));
+                mismatch = found.get(5, TimeUnit.SECONDS);
+            } while (mismatch != null && elapsedMs(quiesceStart) < QUIESCE_TIMEOUT_MS);
+            assertNull(mismatch);
+            assertNull(loop.getFailure());
+            long growth = usedHeapAfterGc() - baselineHeap;
+            System.out.printf(Locale.ROOT, "Soak: %d opérations, croissance du tas %d Kio%n",
+                    completedOperations(metrics), growth / 1024);
+            assertTrue("Heap grew by " + growth + " bytes", growth < MAX_HEAP_GROWTH_BYTES);
+        }
+    }
+
+    private static final DeviceSession.Listener IGNORED = new DeviceSession.Listener() {
+        @Override
+        public void onStateChanged(DeviceSession session, DeviceSnapshot previous, DeviceSnapshot current) {
+        }
+
+        @Override
+        public void onCommandRejected(DeviceSession session) {
+        }
+    };
+
+    /** @return what the first diverging session got wrong, null once they all converged. Event loop thread. */
+    private static String describeMismatch(List<DeviceSession> sessions, List<SimulatedPeripheral> peripherals) {
+        for (int i = 0; i < sessions.size(); i++) {
+            DeviceSession session = sessions.get(i);
+            SimulatedPeripheral peripheral = peripherals.get(i);
+            DeviceSnapshot snapshot = session.getSnapshot();
+            if (snapshot.getPhase() != ConnectionPhase.READY) return session.getAddress() + ": " + snapshot.getPhase();
+            if (!session.getOperationQueue().isIdle()) return session.getAddress() + ": file non vide";
+            if (snapshot.getInputCount() != peripheral.getAudioInputCount()) {
+                return session.getAddress() + ": " + snapshot.getInputCount() + " entrées";
+            }
+            for (int input = 0; input < peripheral.getAudioInputCount(); input++) {
+                AudioInputControls client = snapshot.getInput(input).getControls();
+                String where = session.getAddress() + " entrée " + input;
+                if (client == null) return where + ": pas d'état";
+                if (client.getGainSetting() != peripheral.getGain(input)) {
+                    return where + ": gain " + client.getGainSetting() + " au lieu de " + peripheral.getGain(input);
+                }
+                if ((client.getMute() == MuteState.MUTED) != peripheral.isInputMuted(input)) return where + ": mute incohérent";
+            }
+        }
+        return null;
+    }
+
+    private static long completedOperations(BleMetrics metrics) {
+        long total = 0;
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : metrics.snapshot().entrySet()) {
+            if (entry.getKey().startsWith("Aller-retour")) total += entry.getValue().getCount();
+        }
+        return total;
+    }
+
+    private static void report(long elapsedMs, double operationsPerSecond, BleMetrics metrics) {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "[%4ds] %.0f op/s, tas %d Kio",
+                elapsedMs / 1000, operationsPerSecond, usedHeapAfterGc() / 1024));
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : metrics.snapshot().entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            line.append(String.format(Locale.ROOT, "%n    %-24s n=%d p50=%dµs p99=%dµs max=%dµs", entry.getKey(),
+                    snapshot.getCount(), snapshot.getPercentileMicros(50), snapshot.getPercentileMicros(99),
+                    snapshot.getMaxMicros()));
+        }
+        System.out.println(line);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
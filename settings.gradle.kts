@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "Projet"
 include(":app")
+include(":core")